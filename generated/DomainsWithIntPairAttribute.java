@@ -14,7 +14,7 @@ public enum DomainsWithIntPairAttribute implements DomainWithAttribute<IntPair>
 
         @Override
         public TokenWithAttribute<IntPair> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, REPETITION_OP, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, REPETITION_OP);
         }
     }
 }
\ No newline at end of file
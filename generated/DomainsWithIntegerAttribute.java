@@ -14,7 +14,7 @@ public enum DomainsWithIntegerAttribute implements DomainWithAttribute<Integer>
 
         @Override
         public TokenWithAttribute<Integer> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, CHAR, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, CHAR);
         }
     }
 }
\ No newline at end of file
@@ -14,7 +14,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, NAMED_EXPR, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, NAMED_EXPR);
         }
     },
     DOMAINS_GROUP_MARKER {
@@ -25,7 +25,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, DOMAINS_GROUP_MARKER, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, DOMAINS_GROUP_MARKER);
         }
     },
     IDENTIFIER {
@@ -36,7 +36,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, IDENTIFIER, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, IDENTIFIER);
         }
     },
     ACTION_SWITCH {
@@ -47,7 +47,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, ACTION_SWITCH, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, ACTION_SWITCH);
         }
     },
     ACTION_RETURN {
@@ -58,7 +58,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, ACTION_RETURN, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, ACTION_RETURN);
         }
     }
 }
\ No newline at end of file
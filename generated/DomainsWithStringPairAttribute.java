@@ -14,7 +14,7 @@ public enum DomainsWithStringPairAttribute implements DomainWithAttribute<String
 
         @Override
         public TokenWithAttribute<StringPair> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, ACTION_SWITCH_RETURN, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, ACTION_SWITCH_RETURN);
         }
     }
 }
\ No newline at end of file
@@ -5,27 +5,26 @@ import io.github.sboyanovich.scannergenerator.scanner.Text;
 import io.github.sboyanovich.scannergenerator.scanner.token.DomainWithAttribute;
 import io.github.sboyanovich.scannergenerator.scanner.token.TokenWithAttribute;
 
-import static io.github.sboyanovich.scannergenerator.utility.Utility.getTextFragmentAsString;
-
 public enum DomainsWithIntPairAttribute implements DomainWithAttribute<IntPair> {
     REPETITION_OP {
         @Override
         public IntPair attribute(Text text, Fragment fragment) {
-            String s = getTextFragmentAsString(text, fragment);
-            s = s.substring(1, s.length() - 1);
+            // decoded from code points of text between braces, no Strings are made
+            int start = fragment.getStartingIndex() + 1;
+            int follow = fragment.getFollowingIndex() - 1;
 
-            int pos = s.indexOf(",");
+            int pos = text.indexOf(',', start, follow);
 
             int a, b;
 
             if (pos == -1) {
-                a = Integer.parseInt(s);
+                a = text.parseInt(start, follow, 10);
                 b = a;
-            } else if (pos + 1 < s.length()) {
-                a = Integer.parseInt(s.substring(0, pos));
-                b = Integer.parseInt(s.substring(pos + 1));
+            } else if (pos + 1 < follow) {
+                a = text.parseInt(start, pos, 10);
+                b = text.parseInt(pos + 1, follow, 10);
             } else {
-                a = Integer.parseInt(s.substring(0, pos));
+                a = text.parseInt(start, pos, 10);
                 b = -1;
             }
             return new IntPair(a, b);
@@ -33,7 +32,7 @@ public enum DomainsWithIntPairAttribute implements DomainWithAttribute<IntPair>
 
         @Override
         public TokenWithAttribute<IntPair> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, REPETITION_OP, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, REPETITION_OP);
         }
     }
 }
\ No newline at end of file
@@ -5,43 +5,45 @@ import io.github.sboyanovich.scannergenerator.scanner.Text;
 import io.github.sboyanovich.scannergenerator.scanner.token.DomainWithAttribute;
 import io.github.sboyanovich.scannergenerator.scanner.token.TokenWithAttribute;
 
-import static io.github.sboyanovich.scannergenerator.utility.Utility.asCodePoint;
-import static io.github.sboyanovich.scannergenerator.utility.Utility.getTextFragmentAsString;
-
 public enum DomainsWithIntegerAttribute implements DomainWithAttribute<Integer> {
     CHAR {
         @Override
         public Integer attribute(Text text, Fragment fragment) {
-            String s = getTextFragmentAsString(text, fragment);
-            switch (s) {
-                case "\\b":
-                    return asCodePoint("\b");
-                case "\\t":
-                    return asCodePoint("\t");
-                case "\\n":
-                    return asCodePoint("\n");
-                case "\\f":
-                    return asCodePoint("\f");
-                case "\\r":
-                    return asCodePoint("\r");
+            // decoded from code points of text, no Strings are made
+            int start = fragment.getStartingIndex();
+            int follow = fragment.getFollowingIndex();
+
+            int first = text.codePointAt(start);
+            if (first != '\\') {
+                return first;
+            }
+            int escaped = text.codePointAt(start + 1);
+            if (follow - start > 3 && escaped == 'U' && text.codePointAt(start + 2) == '+') {
+                if (text.codePointAt(start + 3) == '#') {
+                    return text.parseInt(start + 4, follow, 10);
+                } else {
+                    return text.parseInt(start + 3, follow, 16);
+                }
+            }
+            switch (escaped) {
+                case 'b':
+                    return (int) '\b';
+                case 't':
+                    return (int) '\t';
+                case 'n':
+                    return (int) '\n';
+                case 'f':
+                    return (int) '\f';
+                case 'r':
+                    return (int) '\r';
                 default:
-                    if (s.startsWith("\\U+")) {
-                        if (s.codePointAt(3) == asCodePoint("#")) {
-                            return Integer.parseInt(s.substring(4));
-                        } else {
-                            return Integer.parseInt(s.substring(3), 16);
-                        }
-                    } else if (s.startsWith("\\")) {
-                        return asCodePoint(s.substring(1));
-                    } else {
-                        return asCodePoint(s);
-                    }
+                    return escaped;
             }
         }
 
         @Override
         public TokenWithAttribute<Integer> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, CHAR, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, CHAR);
         }
     }
 }
\ No newline at end of file
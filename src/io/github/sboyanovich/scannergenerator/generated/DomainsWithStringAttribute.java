@@ -1,64 +1,66 @@
 package io.github.sboyanovich.scannergenerator.generated;
 
 import io.github.sboyanovich.scannergenerator.scanner.Fragment;
+import io.github.sboyanovich.scannergenerator.scanner.Lexeme;
 import io.github.sboyanovich.scannergenerator.scanner.Text;
 import io.github.sboyanovich.scannergenerator.scanner.token.DomainWithAttribute;
 import io.github.sboyanovich.scannergenerator.scanner.token.TokenWithAttribute;
 import io.github.sboyanovich.scannergenerator.utility.Utility;
 
+import static io.github.sboyanovich.scannergenerator.utility.Utility.getTextFragment;
 import static io.github.sboyanovich.scannergenerator.utility.Utility.getTextFragmentAsString;
 
 public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
     ACTION_RETURN {
         @Override
         public String attribute(Text text, Fragment fragment) {
-            String s = Utility.getTextFragmentAsString(text, fragment);
-            return s.substring(1);
+            Lexeme s = Utility.getTextFragment(text, fragment);
+            return s.subSequence(1, s.length()).toString();
         }
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, this, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, this);
         }
     },
     ACTION_SWITCH {
         @Override
         public String attribute(Text text, Fragment fragment) {
-            String s = Utility.getTextFragmentAsString(text, fragment);
-            return s.substring(1);
+            Lexeme s = Utility.getTextFragment(text, fragment);
+            return s.subSequence(1, s.length()).toString();
         }
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, this, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, this);
         }
     },
     NAMED_EXPR {
         @Override
         public String attribute(Text text, Fragment fragment) {
-            String s = getTextFragmentAsString(text, fragment);
-            return s.substring(1, s.length() - 1);
+            Lexeme s = getTextFragment(text, fragment);
+            return s.subSequence(1, s.length() - 1).toString();
         }
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, NAMED_EXPR, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, NAMED_EXPR);
         }
     },
     DOMAINS_GROUP_MARKER {
         @Override
         public String attribute(Text text, Fragment fragment) {
-            String s = getTextFragmentAsString(text, fragment);
+            Lexeme s = getTextFragment(text, fragment);
             String prefix = "%DOMAINS";
             if (s.length() == prefix.length()) {
                 return "";
             }
-            return s.substring(prefix.length() + 1, s.length() - 1);
+            return s.subSequence(prefix.length() + 1, s.length() - 1).toString();
         }
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, DOMAINS_GROUP_MARKER, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, DOMAINS_GROUP_MARKER);
         }
     },
     IDENTIFIER {
@@ -69,7 +71,7 @@ public enum DomainsWithStringAttribute implements DomainWithAttribute<String> {
 
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, IDENTIFIER, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, IDENTIFIER);
         }
     }
 }
\ No newline at end of file
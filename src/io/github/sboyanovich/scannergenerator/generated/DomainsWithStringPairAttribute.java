@@ -17,7 +17,7 @@ public enum DomainsWithStringPairAttribute implements DomainWithAttribute<String
 
         @Override
         public TokenWithAttribute<StringPair> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, this, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, this);
         }
     }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package io.github.sboyanovich.scannergenerator.generated;
 
 import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.CodePointSet;
 import io.github.sboyanovich.scannergenerator.scanner.Fragment;
 import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;
+import io.github.sboyanovich.scannergenerator.scanner.MaximalMunchMemo;
 import io.github.sboyanovich.scannergenerator.scanner.Position;
 import io.github.sboyanovich.scannergenerator.scanner.Text;
+import io.github.sboyanovich.scannergenerator.scanner.TokenBuffer;
 import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
 import io.github.sboyanovich.scannergenerator.scanner.token.Token;
 import io.github.sboyanovich.scannergenerator.utility.Utility;
@@ -23,23 +26,39 @@ public abstract class GeneratedScanner implements Iterator<Token> {
         SL_COMMENT
     }
 
-    private static final int NEWLINE = Utility.asCodePoint("\n");
-    private static final int CARRET = Utility.asCodePoint("\r");
-
-    private Map<Mode, LexicalRecognizer> recognizers;
-    private Position currPos;
-    private Position start;
+    // recognizers of all modes combined, see LexicalRecognizer.combine()
+    private LexicalRecognizer recognizer;
+    // indexed by ordinals of modes
+    private int[] initialOffsets;
+    // scanning takes linear time if present, see setLinearTime()
+    private MaximalMunchMemo memo;
+    // whether the last final state met must be remembered, see skipToDeadEnd()
+    private boolean backingUp;
+    // error recovery skips to these
+    private CodePointSet tokenStarts;
+    // line and column are only resolved for positions of token bounds, when asked for
+    private int currIndex;
+    private int start;
     private Text inputText;
     private Mode currentMode;
     private int currState;
     private boolean hasNext;
+    // token made by an action, mode in which the last token was scanned
+    private Token actionToken;
+    private int tokenMode;
+    // set while tokenizeInto() fills a buffer, whose tokens' text must be retained
+    private boolean batching;
 
     public GeneratedScanner(String inputText) {
+        this(new Text(inputText));
+    }
+
+    public GeneratedScanner(Text inputText) {
         // General purpose initialization.
-        this.inputText = new Text(inputText);
+        this.inputText = inputText;
         this.currentMode = INITIAL;
-        this.currPos = new Position();
-        this.start = this.currPos;
+        this.currIndex = 0;
+        this.start = 0;
         this.hasNext = true;
 
         // Building tag list for correct restoring of recognizers from files.
@@ -83,23 +102,16 @@ public abstract class GeneratedScanner implements Iterator<Token> {
         finalTags.add(WHITESPACE);
         finalTags.add(WHITESPACE_IN_REGEX);
 
-        // Restoring recognizers from files.
-        this.recognizers = new HashMap<>();
-        this.recognizers.put(REGEX, new LexicalRecognizer(
-                ClassLoader.getSystemClassLoader()
-                        .getResourceAsStream("generated/recognizers/REGEX.reco"), finalTags));
-        this.recognizers.put(INITIAL, new LexicalRecognizer(
-                ClassLoader.getSystemClassLoader()
-                        .getResourceAsStream("generated/recognizers/INITIAL.reco"), finalTags));
-        this.recognizers.put(SL_COMMENT, new LexicalRecognizer(
-                ClassLoader.getSystemClassLoader()
-                        .getResourceAsStream("generated/recognizers/SL_COMMENT.reco"), finalTags));
-        this.recognizers.put(CHAR_CLASS, new LexicalRecognizer(
+        // Restoring recognizer from file, its modes are in the order of Mode.
+        this.recognizer = new LexicalRecognizer(
                 ClassLoader.getSystemClassLoader()
-                        .getResourceAsStream("generated/recognizers/CHAR_CLASS.reco"), finalTags));
-        this.recognizers.put(COMMENT, new LexicalRecognizer(
-                ClassLoader.getSystemClassLoader()
-                        .getResourceAsStream("generated/recognizers/COMMENT.reco"), finalTags));
+                        .getResourceAsStream("generated/recognizers/GeneratedScanner.reco"), finalTags);
+        this.initialOffsets = new int[Mode.values().length];
+        for (Mode mode : Mode.values()) {
+            this.initialOffsets[mode.ordinal()] = this.recognizer.getInitialOffset(mode.ordinal());
+        }
+        // assuming general use case that all token starts are recognized by default mode
+        this.tokenStarts = this.recognizer.getTokenStartSet(INITIAL.ordinal());
 
         // just in case
         resetCurrState();
@@ -110,7 +122,21 @@ public abstract class GeneratedScanner implements Iterator<Token> {
     }
 
     protected void resetCurrState() {
-        this.currState = getCurrentRecognizer().getInitialState();
+        this.currState = this.initialOffsets[this.currentMode.ordinal()];
+        this.backingUp = this.memo != null || this.recognizer.needsBackingUp(this.currentMode.ordinal());
+        if (this.memo != null) {
+            this.memo.startMatch(this.currIndex);
+        }
+    }
+
+    /**
+     * In linear time mode, states known to fail at given input index are remembered
+     * (see MaximalMunchMemo), so that no input is scanned over and over again after matches.
+     * Meant for input that may be made to exploit that, it takes memory and some speed otherwise.
+     */
+    public void setLinearTime(boolean linearTime) {
+        this.memo = linearTime ? new MaximalMunchMemo(this.recognizer) : null;
+        resetCurrState();
     }
 
     protected void switchToMode(Mode mode) {
@@ -119,49 +145,69 @@ public abstract class GeneratedScanner implements Iterator<Token> {
     }
 
     protected void setStartToCurrentPosition() {
-        this.start = this.currPos;
+        this.start = this.currIndex;
+        // streamed input is only retained from the current token's start onward
+        if (!this.batching) {
+            this.inputText.release(this.start);
+        }
     }
 
     private void advanceCurrentPosition() {
-        int index = this.currPos.getIndex();
-        int codePoint = this.inputText.codePointAt(index);
-        int nextCodePoint = this.inputText.codePointAt(index + 1);
-
-        if (codePoint != Text.EOI) {
-            int line = this.currPos.getLine();
-            // CARRET not followed by NEWLINE will also count as line break
-            if ((codePoint == NEWLINE) || ((codePoint == CARRET) && (nextCodePoint != NEWLINE))) {
-                this.currPos = new Position(line + 1, 1, index + 1);
-            } else {
-                int pos = this.currPos.getPos();
-                this.currPos = new Position(line, pos + 1, index + 1);
-            }
+        if (getCurrentCodePoint() != Text.EOI) {
+            this.currIndex++;
         }
     }
 
+    private Position getCurrentPosition() {
+        return this.inputText.positionAt(this.currIndex);
+    }
+
     private String getTextFragment(Fragment span) {
         return Utility.getTextFragmentAsString(this.inputText, span);
     }
 
     private int getCurrentCodePoint() {
-        int cp = this.currPos.getIndex();
-        return this.inputText.codePointAt(cp);
+        return this.inputText.codePointAt(this.currIndex);
     }
 
-    private boolean atPotentialTokenStart() {
-        int currCodePoint = getCurrentCodePoint();
-        // assuming general use case that all token starts are recognized by default mode
-        LexicalRecognizer recognizer = this.recognizers.get(INITIAL);
-        int nextState = recognizer.transition(recognizer.getInitialState(), currCodePoint);
-        return nextState != LexicalRecognizer.DEAD_END_STATE;
+    private void skipToPotentialTokenStart() {
+        // input is skipped in bulk, rather than code point by code point
+        this.currIndex = this.inputText.indexOfAny(this.currIndex, this.tokenStarts);
     }
 
-    private LexicalRecognizer getCurrentRecognizer() {
-        return this.recognizers.get(this.currentMode);
+    // states are offsets of LexicalRecognizer's unchecked API
+    private int nextState(int codePoint) {
+        if (codePoint == Text.EOI) {
+            return LexicalRecognizer.DEAD_END_STATE;
+        }
+        return this.recognizer.nextOffset(this.currState, codePoint);
     }
 
-    private boolean isFinal(int currState) {
-        return StateTag.isFinal(this.recognizers.get(this.currentMode).getStateTag(currState));
+    // For modes without backing-up states (see LexicalRecognizer.getBackingUpStates()),
+    // runs the recognizer up to the symbol leading to dead-end state, without looking for
+    // final states on the way: the match (if any) ends where it stops.
+    private void skipToDeadEnd() {
+        int state = this.currState;
+        int index = this.currIndex;
+        while (true) {
+            int codePoint = this.inputText.codePointAt(index);
+            int nextState = (codePoint == Text.EOI) ?
+                    LexicalRecognizer.DEAD_END_STATE : this.recognizer.nextOffset(state, codePoint);
+            if (nextState == LexicalRecognizer.DEAD_END_STATE) {
+                break;
+            }
+            index++;
+            if (nextState == state) {
+                int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(state);
+                if (exitSymbols != null) {
+                    // the state is only left on these
+                    index = this.inputText.indexOfAny(index, exitSymbols);
+                }
+            }
+            state = nextState;
+        }
+        this.currState = state;
+        this.currIndex = index;
     }
 
     @Override
@@ -175,298 +221,363 @@ public abstract class GeneratedScanner implements Iterator<Token> {
     }
 
     public Token nextToken() {
+        int kind = scanToken();
+        if (this.actionToken != null) {
+            return this.actionToken;
+        }
+        return createToken(kind, this.start, this.currIndex);
+    }
+
+    /**
+     * Scans tokens into buffer until it's full or end of input is added, creating only the tokens
+     * returned by actions. Tokens of the batch may be created with getToken() until the next batch
+     * is scanned, streamed input is retained for that long. Buffer's kinds are ordinals of
+     * StateTags, modes are ordinals of Mode.
+     *
+     * @return number of tokens added
+     */
+    public int tokenizeInto(TokenBuffer buffer) {
+        this.inputText.release(this.currIndex);
+        this.batching = true;
+        try {
+            int added = 0;
+            while (!buffer.isFull()) {
+                int kind = scanToken();
+                if (this.actionToken != null) {
+                    buffer.add(this.actionToken, kind, this.tokenMode);
+                } else {
+                    buffer.add(kind, this.start, this.currIndex, this.tokenMode);
+                }
+                added++;
+                if (kind == TokenBuffer.END_OF_INPUT) {
+                    break;
+                }
+            }
+            return added;
+        } finally {
+            this.batching = false;
+        }
+    }
+
+    /**
+     * @param i index of a token scanned by tokenizeInto() into buffer
+     */
+    public Token getToken(TokenBuffer buffer, int i) {
+        Token token = buffer.getToken(i);
+        if (token != null) {
+            return token;
+        }
+        return createToken(buffer.getKind(i), buffer.getStartingIndex(i), buffer.getFollowingIndex(i));
+    }
+
+    /**
+     * Scans the next token, leaving its bounds in start and currIndex.
+     *
+     * @return accept index of the token's final state, TokenBuffer.ERROR or TokenBuffer.END_OF_INPUT
+     */
+    private int scanToken() {
+        this.actionToken = null;
         resetCurrState();
         setStartToCurrentPosition();
 
-        // Save last final state encountered
-        OptionalInt lastFinalState = OptionalInt.empty();
-        Position lastInFinal = new Position(); // will be used only if lastFinalState is present
+        // Save accept index of last final state encountered
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = 0; // will be used only if lastAccept is present
 
         while (true) {
+            if (!this.backingUp) {
+                // the state it stops in is the one to look at
+                skipToDeadEnd();
+            }
             int currCodePoint = getCurrentCodePoint();
-            int nextState = getCurrentRecognizer().transition(this.currState, currCodePoint);
+            int nextState = nextState(currCodePoint);
 
-            if (isFinal(this.currState)) {
-                lastFinalState = OptionalInt.of(this.currState);
-                lastInFinal = this.currPos;
+            int accept = this.recognizer.getAcceptIndexAtOffset(this.currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = this.currIndex;
+            }
+
+            if (this.memo != null) {
+                // until something matched, scanning goes on to dead-end state, as usual
+                if (!this.memo.visit(this.currState, this.currIndex) &&
+                        lastAccept != LexicalRecognizer.NOT_ACCEPTING) {
+                    nextState = LexicalRecognizer.DEAD_END_STATE;
+                }
             }
 
             if (nextState != LexicalRecognizer.DEAD_END_STATE) {
-                this.currState = nextState;
                 advanceCurrentPosition();
+                // skipped states couldn't be remembered
+                if (nextState == this.currState && this.memo == null) {
+                    int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(nextState);
+                    if (exitSymbols != null) {
+                        // the state is only left on these
+                        this.currIndex = this.inputText.indexOfAny(this.currIndex, exitSymbols);
+                    }
+                }
+                this.currState = nextState;
             } else {
                 // it's time to stop
+                this.tokenMode = this.currentMode.ordinal();
 
                 // nothing matched
-                if (!isFinal(this.currState) && !lastFinalState.isPresent()) {
+                if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
                     /// This guards against finding EOI while completing an earlier started token
                     if (
                             (currCodePoint == Text.EOI || currCodePoint == this.inputText.getAltEoi()) &&
-                                    this.currPos.equals(this.start)
+                                    this.currIndex == this.start
                     ) {
                         this.hasNext = false;
-                        return Domain.END_OF_INPUT.createToken(this.inputText, new Fragment(currPos, currPos));
+                        return TokenBuffer.END_OF_INPUT;
                     }
 
                     // we've found an error
 
                     /// ERROR HANDLING CODE GOES HERE!
-                    handleError(currCodePoint, this.currentMode, this.currPos);
+                    handleError(currCodePoint, this.currentMode, getCurrentPosition());
 
                     // recovery
                     // symbol we've stumbled upon might be the beginning of a new token
-                    while ((getCurrentCodePoint() != Text.EOI) && !atPotentialTokenStart()) {
-                        advanceCurrentPosition();
-                    }
+                    skipToPotentialTokenStart();
                     switchToMode(INITIAL); // resetting to default mode after error recovery
-                    Fragment invalidFragment = new Fragment(this.start, this.currPos);
-
-                    return Domain.ERROR.createToken(this.inputText, invalidFragment);
+                    return TokenBuffer.ERROR;
                 } else {
-                    if (lastFinalState.isPresent()) {
-                        this.currPos = lastInFinal;
-                        this.currState = lastFinalState.getAsInt();
-                    }
-                    // now currState is certainly final
-
-                    lastFinalState = OptionalInt.empty(); // something matched, no reusing this!
-                    Fragment scannedFragment = new Fragment(this.start, this.currPos);
-                    Optional<Token> optToken = Optional.empty();
+                    this.currIndex = lastInFinal;
+                    // last final state is certainly present
 
-                    // this cast should always work, provided all final ones are in one enum
-                    // alternative: switch vs instanceof
-                    StateTags tag = (StateTags) getCurrentRecognizer().getStateTag(this.currState);
+                    if (this.memo != null) {
+                        this.memo.endMatch(lastInFinal);
+                    }
 
                     /// TIP: for ignored expressions (e.g. whitespace) case should just reset start
-                    switch (tag) {
-                        case WHITESPACE_IN_REGEX:
-                            optToken = handleWhitespaceInRegex(this.inputText, scannedFragment);
-                            break;
-                        case WHITESPACE:
+                    // accept indices are ordinals of StateTags
+                    switch (lastAccept) {
+                        case 37: // WHITESPACE_IN_REGEX
+                            this.actionToken = handleWhitespaceInRegex(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
+                            break;
+                        case 36: // WHITESPACE
                             setStartToCurrentPosition();
                             break;
-                        case ACTION_SWITCH:
-                            optToken = Optional.of(
-                                    DomainsWithStringAttribute
-                                            .ACTION_SWITCH.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case ACTION_RETURN:
-                            optToken = Optional.of(
-                                    DomainsWithStringAttribute
-                                            .ACTION_RETURN.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case ACTION_SWITCH_RETURN:
-                            optToken = Optional.of(
-                                    DomainsWithStringPairAttribute
-                                            .ACTION_SWITCH_RETURN.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case RULE_END:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .RULE_END.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case COMMA:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .COMMA.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case L_ANGLE_BRACKET:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .L_ANGLE_BRACKET.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case R_ANGLE_BRACKET:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .R_ANGLE_BRACKET.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case RULES_SECTION_MARKER:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .RULES_SECTION_MARKER.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case DOMAINS_GROUP_MARKER:
-                            optToken = Optional.of(
-                                    DomainsWithStringAttribute
-                                            .DOMAINS_GROUP_MARKER.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case MODES_SECTION_MARKER:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .MODES_SECTION_MARKER.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case DEFINER:
+                        case 35: // ACTION_SWITCH
+                            return lastAccept;
+                        case 34: // ACTION_RETURN
+                            return lastAccept;
+                        case 33: // ACTION_SWITCH_RETURN
+                            return lastAccept;
+                        case 32: // RULE_END
+                            return lastAccept;
+                        case 31: // COMMA
+                            return lastAccept;
+                        case 30: // L_ANGLE_BRACKET
+                            return lastAccept;
+                        case 29: // R_ANGLE_BRACKET
+                            return lastAccept;
+                        case 28: // RULES_SECTION_MARKER
+                            return lastAccept;
+                        case 27: // DOMAINS_GROUP_MARKER
+                            return lastAccept;
+                        case 26: // MODES_SECTION_MARKER
+                            return lastAccept;
+                        case 25: // DEFINER
                             switchToMode(REGEX);
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .DEFINER.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case IDENTIFIER:
-                            optToken = Optional.of(
-                                    DomainsWithStringAttribute
-                                            .IDENTIFIER.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case NAMED_EXPR:
-                            optToken = Optional.of(
-                                    DomainsWithStringAttribute
-                                            .NAMED_EXPR.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case LPAREN:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .LPAREN.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case RPAREN:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .RPAREN.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CLASS_MINUS_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .CLASS_MINUS_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case REPETITION_OP:
-                            optToken = Optional.of(
-                                    DomainsWithIntPairAttribute
-                                            .REPETITION_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case OPTION_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .OPTION_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case UNION_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .UNION_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case POS_ITERATION_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .POS_ITERATION_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case ITERATION_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .ITERATION_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case DOT:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .DOT.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case EOF:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .EOF.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CHAR_CLASS_RANGE_OP:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .CHAR_CLASS_RANGE_OP.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CHAR_CLASS_NEG:
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .CHAR_CLASS_NEG.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CHAR_CLASS_OPEN:
+                            return lastAccept;
+                        case 24: // IDENTIFIER
+                            return lastAccept;
+                        case 23: // NAMED_EXPR
+                            return lastAccept;
+                        case 22: // LPAREN
+                            return lastAccept;
+                        case 21: // RPAREN
+                            return lastAccept;
+                        case 20: // CLASS_MINUS_OP
+                            return lastAccept;
+                        case 19: // REPETITION_OP
+                            return lastAccept;
+                        case 18: // OPTION_OP
+                            return lastAccept;
+                        case 17: // UNION_OP
+                            return lastAccept;
+                        case 16: // POS_ITERATION_OP
+                            return lastAccept;
+                        case 15: // ITERATION_OP
+                            return lastAccept;
+                        case 14: // DOT
+                            return lastAccept;
+                        case 13: // EOF
+                            return lastAccept;
+                        case 12: // CHAR_CLASS_RANGE_OP
+                            return lastAccept;
+                        case 11: // CHAR_CLASS_NEG
+                            return lastAccept;
+                        case 10: // CHAR_CLASS_OPEN
                             switchToMode(CHAR_CLASS);
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .CHAR_CLASS_OPEN.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CHAR_CLASS_CLOSE:
+                            return lastAccept;
+                        case 9: // CHAR_CLASS_CLOSE
                             switchToMode(REGEX);
-                            optToken = Optional.of(
-                                    SimpleDomains
-                                            .CHAR_CLASS_CLOSE.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CHAR:
-                            optToken = Optional.of(
-                                    DomainsWithIntegerAttribute
-                                            .CHAR.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case CLASS_CHAR:
-                            optToken = Optional.of(
-                                    DomainsWithIntegerAttribute
-                                            .CHAR.createToken(this.inputText, scannedFragment)
-                            );
-                            break;
-                        case COMMENT_START:
+                            return lastAccept;
+                        case 8: // CHAR
+                            return lastAccept;
+                        case 7: // CLASS_CHAR
+                            return lastAccept;
+                        case 6: // COMMENT_START
                             switchToMode(COMMENT);
                             break;
-                        case NO_ASTERISK_SEQ:
-                            optToken = handleNoAsteriskSeq(this.inputText, scannedFragment);
-                            break;
-                        case COMMENT_CLOSE:
-                            optToken = handleCommentClose(this.inputText, scannedFragment);
-                            break;
-                        case ASTERISK:
-                            optToken = handleCommentAsterisk(this.inputText, scannedFragment);
-                            break;
-                        case SLC_START:
+                        case 5: // NO_ASTERISK_SEQ
+                            this.actionToken = handleNoAsteriskSeq(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
+                            break;
+                        case 4: // COMMENT_CLOSE
+                            this.actionToken = handleCommentClose(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
+                            break;
+                        case 3: // ASTERISK
+                            this.actionToken = handleCommentAsterisk(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
+                            break;
+                        case 2: // SLC_START
                             switchToMode(SL_COMMENT);
                             break;
-                        case SLC_CLOSE:
-                            optToken = handleSlcClose(this.inputText, scannedFragment);
+                        case 1: // SLC_CLOSE
+                            this.actionToken = handleSlcClose(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
                             break;
-                        case SLC_REG:
-                            optToken = handleSlcReg(this.inputText, scannedFragment);
+                        case 0: // SLC_REG
+                            this.actionToken = handleSlcReg(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));
+                            if (this.actionToken != null) {
+                                return lastAccept;
+                            }
                             break;
                     }
-
-                    if (optToken.isPresent()) {
-                        return optToken.get();
-                    } else {
-                        resetCurrState();
-                    }
+                    lastAccept = LexicalRecognizer.NOT_ACCEPTING; // something matched, no reusing this!
+                    resetCurrState();
                 }
             }
         }
     }
 
+    private Token createToken(int kind, int start, int follow) {
+        switch (kind) {
+            case TokenBuffer.END_OF_INPUT:
+                return Domain.END_OF_INPUT.createToken(this.inputText, start, follow);
+            case TokenBuffer.ERROR:
+                return Domain.ERROR.createToken(this.inputText, start, follow);
+            case 35: // ACTION_SWITCH
+                return DomainsWithStringAttribute
+                        .ACTION_SWITCH.createToken(this.inputText, start, follow);
+            case 34: // ACTION_RETURN
+                return DomainsWithStringAttribute
+                        .ACTION_RETURN.createToken(this.inputText, start, follow);
+            case 33: // ACTION_SWITCH_RETURN
+                return DomainsWithStringPairAttribute
+                        .ACTION_SWITCH_RETURN.createToken(this.inputText, start, follow);
+            case 32: // RULE_END
+                return SimpleDomains
+                        .RULE_END.createToken(this.inputText, start, follow);
+            case 31: // COMMA
+                return SimpleDomains
+                        .COMMA.createToken(this.inputText, start, follow);
+            case 30: // L_ANGLE_BRACKET
+                return SimpleDomains
+                        .L_ANGLE_BRACKET.createToken(this.inputText, start, follow);
+            case 29: // R_ANGLE_BRACKET
+                return SimpleDomains
+                        .R_ANGLE_BRACKET.createToken(this.inputText, start, follow);
+            case 28: // RULES_SECTION_MARKER
+                return SimpleDomains
+                        .RULES_SECTION_MARKER.createToken(this.inputText, start, follow);
+            case 27: // DOMAINS_GROUP_MARKER
+                return DomainsWithStringAttribute
+                        .DOMAINS_GROUP_MARKER.createToken(this.inputText, start, follow);
+            case 26: // MODES_SECTION_MARKER
+                return SimpleDomains
+                        .MODES_SECTION_MARKER.createToken(this.inputText, start, follow);
+            case 25: // DEFINER
+                return SimpleDomains
+                        .DEFINER.createToken(this.inputText, start, follow);
+            case 24: // IDENTIFIER
+                return DomainsWithStringAttribute
+                        .IDENTIFIER.createToken(this.inputText, start, follow);
+            case 23: // NAMED_EXPR
+                return DomainsWithStringAttribute
+                        .NAMED_EXPR.createToken(this.inputText, start, follow);
+            case 22: // LPAREN
+                return SimpleDomains
+                        .LPAREN.createToken(this.inputText, start, follow);
+            case 21: // RPAREN
+                return SimpleDomains
+                        .RPAREN.createToken(this.inputText, start, follow);
+            case 20: // CLASS_MINUS_OP
+                return SimpleDomains
+                        .CLASS_MINUS_OP.createToken(this.inputText, start, follow);
+            case 19: // REPETITION_OP
+                return DomainsWithIntPairAttribute
+                        .REPETITION_OP.createToken(this.inputText, start, follow);
+            case 18: // OPTION_OP
+                return SimpleDomains
+                        .OPTION_OP.createToken(this.inputText, start, follow);
+            case 17: // UNION_OP
+                return SimpleDomains
+                        .UNION_OP.createToken(this.inputText, start, follow);
+            case 16: // POS_ITERATION_OP
+                return SimpleDomains
+                        .POS_ITERATION_OP.createToken(this.inputText, start, follow);
+            case 15: // ITERATION_OP
+                return SimpleDomains
+                        .ITERATION_OP.createToken(this.inputText, start, follow);
+            case 14: // DOT
+                return SimpleDomains
+                        .DOT.createToken(this.inputText, start, follow);
+            case 13: // EOF
+                return SimpleDomains
+                        .EOF.createToken(this.inputText, start, follow);
+            case 12: // CHAR_CLASS_RANGE_OP
+                return SimpleDomains
+                        .CHAR_CLASS_RANGE_OP.createToken(this.inputText, start, follow);
+            case 11: // CHAR_CLASS_NEG
+                return SimpleDomains
+                        .CHAR_CLASS_NEG.createToken(this.inputText, start, follow);
+            case 10: // CHAR_CLASS_OPEN
+                return SimpleDomains
+                        .CHAR_CLASS_OPEN.createToken(this.inputText, start, follow);
+            case 9: // CHAR_CLASS_CLOSE
+                return SimpleDomains
+                        .CHAR_CLASS_CLOSE.createToken(this.inputText, start, follow);
+            case 8: // CHAR
+                return DomainsWithIntegerAttribute
+                        .CHAR.createToken(this.inputText, start, follow);
+            case 7: // CLASS_CHAR
+                return DomainsWithIntegerAttribute
+                        .CHAR.createToken(this.inputText, start, follow);
+            default:
+                throw new IllegalArgumentException("Kind " + kind + " doesn't make a token!");
+        }
+    }
+
     protected abstract void handleError(int codePoint, Mode mode, Position errorAt);
 
-    protected abstract Optional<Token> handleWhitespaceInRegex(Text text, Fragment fragment);
+    // actions return null if the match doesn't make a token
+    protected abstract Token handleWhitespaceInRegex(Text text, Fragment fragment);
 
-    protected abstract Optional<Token> handleNoAsteriskSeq(Text text, Fragment fragment);
+    protected abstract Token handleNoAsteriskSeq(Text text, Fragment fragment);
 
-    protected abstract Optional<Token> handleCommentClose(Text text, Fragment fragment);
+    protected abstract Token handleCommentClose(Text text, Fragment fragment);
 
-    protected abstract Optional<Token> handleCommentAsterisk(Text text, Fragment fragment);
+    protected abstract Token handleCommentAsterisk(Text text, Fragment fragment);
 
-    protected abstract Optional<Token> handleSlcClose(Text text, Fragment fragment);
+    protected abstract Token handleSlcClose(Text text, Fragment fragment);
 
-    protected abstract Optional<Token> handleSlcReg(Text text, Fragment fragment);
+    protected abstract Token handleSlcReg(Text text, Fragment fragment);
 
 }
\ No newline at end of file
@@ -5,14 +5,16 @@ import io.github.sboyanovich.scannergenerator.scanner.Position;
 import io.github.sboyanovich.scannergenerator.scanner.Text;
 import io.github.sboyanovich.scannergenerator.scanner.token.Token;
 
-import java.util.Optional;
-
 import static io.github.sboyanovich.scannergenerator.generated.GeneratedScanner.Mode.INITIAL;
 
 public class MyScanner extends GeneratedScanner {
     private MockCompiler compiler;
 
     public MyScanner(String inputText) {
+        this(new Text(inputText));
+    }
+
+    public MyScanner(Text inputText) {
         super(inputText);
         this.compiler = new MockCompiler();
     }
@@ -27,38 +29,38 @@ public class MyScanner extends GeneratedScanner {
     }
 
     @Override
-    protected Optional<Token> handleWhitespaceInRegex(Text text, Fragment fragment) {
+    protected Token handleWhitespaceInRegex(Text text, Fragment fragment) {
         switchToMode(INITIAL);
         setStartToCurrentPosition();
-        return Optional.empty();
+        return null;
     }
 
     @Override
-    protected Optional<Token> handleNoAsteriskSeq(Text text, Fragment fragment) {
-        return Optional.empty();
+    protected Token handleNoAsteriskSeq(Text text, Fragment fragment) {
+        return null;
     }
 
     @Override
-    protected Optional<Token> handleCommentAsterisk(Text text, Fragment fragment) {
-        return Optional.empty();
+    protected Token handleCommentAsterisk(Text text, Fragment fragment) {
+        return null;
     }
 
     @Override
-    protected Optional<Token> handleCommentClose(Text text, Fragment fragment) {
+    protected Token handleCommentClose(Text text, Fragment fragment) {
         switchToMode(INITIAL);
         setStartToCurrentPosition();
-        return Optional.empty();
+        return null;
     }
 
     @Override
-    protected Optional<Token> handleSlcReg(Text text, Fragment fragment) {
-        return Optional.empty();
+    protected Token handleSlcReg(Text text, Fragment fragment) {
+        return null;
     }
 
     @Override
-    protected Optional<Token> handleSlcClose(Text text, Fragment fragment) {
+    protected Token handleSlcClose(Text text, Fragment fragment) {
         switchToMode(INITIAL);
         setStartToCurrentPosition();
-        return Optional.empty();
+        return null;
     }
 }
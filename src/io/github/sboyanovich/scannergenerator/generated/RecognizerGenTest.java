@@ -3,6 +3,7 @@ package io.github.sboyanovich.scannergenerator.generated;
 import io.github.sboyanovich.scannergenerator.automata.DFA;
 import io.github.sboyanovich.scannergenerator.automata.NFA;
 import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.DirectCodeGenerator;
 import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;
 import io.github.sboyanovich.scannergenerator.utility.Utility;
 
@@ -21,11 +22,16 @@ public class RecognizerGenTest {
     public static void main(String[] args) {
         String appName = "xgen";
         if (args.length < 1) {
-            System.err.println("USAGE: " + appName + " <input_file>");
+            System.err.println("USAGE: " + appName + " <input_file> [-utf8] [-direct]");
             System.exit(1);
         }
 
         String inputFile = args[0];
+        List<String> options = Arrays.asList(args).subList(1, args.length);
+        // additionally write byte level recognizers, for use with Utf8Scanner
+        boolean utf8 = options.contains("-utf8");
+        // emit recognizers as code of the scanner, instead of restoring them from files
+        boolean direct = options.contains("-direct");
 
         startTotal = Instant.now();
 
@@ -200,6 +206,27 @@ public class RecognizerGenTest {
                 recognizer.writeToFile(
                         prefix + recognizersDirName + "/" + modeName + ".reco", priorityMap
                 );
+                if (utf8) {
+                    recognizer.toUtf8().writeToFile(
+                            prefix + recognizersDirName + "/" + modeName + ".utf8.reco", priorityMap
+                    );
+                }
+                // like flex -b, modes without backing-up states get scanned without tracking final states
+                Utility.writeTextToFile(
+                        recognizer.getBackingUpReport(0, Utility::defaultUnicodeInterpretation),
+                        prefix + recognizersDirName + "/" + modeName + ".backup"
+                );
+            }
+            if (!direct) {
+                // all modes in one table, in the order of the scanner's Mode enum
+                List<LexicalRecognizer> modeRecognizers = new ArrayList<>();
+                modeRecognizers.add(modes.get("INITIAL"));
+                for (AST.Identifier mode : spec.modes.modeNames) {
+                    modeRecognizers.add(modes.get(mode.identifier));
+                }
+                LexicalRecognizer.combine(modeRecognizers).writeToFile(
+                        prefix + recognizersDirName + "/" + scannerClassName + ".reco", priorityMap
+                );
             }
             end = Instant.now();
             timeWritingRecognizers += Duration.between(start, end).toMillis();
@@ -255,11 +282,14 @@ public class RecognizerGenTest {
 
             StringBuilder scannerCode = new StringBuilder();
             scannerCode.append("package ").append(packageName).append(";\n\n")
-                    .append("import io.github.sboyanovich.scannergenerator.automata.StateTag;\n" +
-                            "import io.github.sboyanovich.scannergenerator.scanner.Fragment;\n" +
-                            "import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;\n" +
-                            "import io.github.sboyanovich.scannergenerator.scanner.Position;\n" +
+                    .append("import io.github.sboyanovich.scannergenerator.automata.StateTag;\n")
+                    .append(direct ? "" : "import io.github.sboyanovich.scannergenerator.scanner.CodePointSet;\n")
+                    .append("import io.github.sboyanovich.scannergenerator.scanner.Fragment;\n" +
+                            "import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;\n")
+                    .append(direct ? "" : "import io.github.sboyanovich.scannergenerator.scanner.MaximalMunchMemo;\n")
+                    .append("import io.github.sboyanovich.scannergenerator.scanner.Position;\n" +
                             "import io.github.sboyanovich.scannergenerator.scanner.Text;\n" +
+                            "import io.github.sboyanovich.scannergenerator.scanner.TokenBuffer;\n" +
                             "import io.github.sboyanovich.scannergenerator.scanner.token.Domain;\n" +
                             "import io.github.sboyanovich.scannergenerator.scanner.token.Token;\n" +
                             "import io.github.sboyanovich.scannergenerator.utility.Utility;\n" +
@@ -278,114 +308,196 @@ public class RecognizerGenTest {
             for (AST.Identifier mode : spec.modes.modeNames) {
                 scannerCode.append(",\n").append(INDENT_4).append(INDENT_4).append(mode.identifier);
             }
-            scannerCode.append("\n").append(INDENT_4).append("}\n\n")
-                    .append("    private static final int NEWLINE = Utility.asCodePoint(\"\\n\");\n" +
-                            "    private static final int CARRET = Utility.asCodePoint(\"\\r\");\n" +
-                            "\n" +
-                            "    private Map<Mode, LexicalRecognizer> recognizers;\n" +
-                            "    private Position currPos;\n" +
-                            "    private Position start;\n" +
+            scannerCode.append("\n").append(INDENT_4).append("}\n\n");
+            if (!direct) {
+                scannerCode.append("    // recognizers of all modes combined, see LexicalRecognizer.combine()\n" +
+                        "    private LexicalRecognizer recognizer;\n" +
+                        "    // indexed by ordinals of modes\n" +
+                        "    private int[] initialOffsets;\n" +
+                        "    // scanning takes linear time if present, see setLinearTime()\n" +
+                        "    private MaximalMunchMemo memo;\n" +
+                        "    // whether the last final state met must be remembered, see skipToDeadEnd()\n" +
+                        "    private boolean backingUp;\n" +
+                        "    // error recovery skips to these\n" +
+                        "    private CodePointSet tokenStarts;\n");
+            }
+            scannerCode
+                    .append("    // line and column are only resolved for positions of token bounds, when asked for\n" +
+                            "    private int currIndex;\n" +
+                            "    private int start;\n" +
                             "    private Text inputText;\n" +
-                            "    private Mode currentMode;\n" +
-                            "    private int currState;\n" +
-                            "    private boolean hasNext;\n" +
+                            "    private Mode currentMode;\n")
+                    .append(direct ? "    private int lastInFinal;\n" : "    private int currState;\n")
+                    .append("    private boolean hasNext;\n" +
+                            "    // token made by an action, mode in which the last token was scanned\n" +
+                            "    private Token actionToken;\n" +
+                            "    private int tokenMode;\n" +
+                            "    // set while tokenizeInto() fills a buffer, whose tokens' text must be retained\n" +
+                            "    private boolean batching;\n" +
                             "\n" +
                             "    public ")
                     .append(scannerClassName)
                     .append("(String inputText) {\n" +
+                            "        this(new Text(inputText));\n" +
+                            "    }\n" +
+                            "\n" +
+                            "    public ")
+                    .append(scannerClassName)
+                    .append("(Text inputText) {\n" +
                             "        // General purpose initialization.\n" +
-                            "        this.inputText = new Text(inputText);\n" +
+                            "        this.inputText = inputText;\n" +
                             "        this.currentMode = INITIAL;\n" +
-                            "        this.currPos = new Position();\n" +
-                            "        this.start = this.currPos;\n" +
-                            "        this.hasNext = true;\n" +
-                            "\n" +
-                            "        // Building tag list for correct restoring of recognizers from files.\n" +
-                            "        List<StateTag> finalTags = new ArrayList<>();\n");
-
-            for (StateTag tag : priorityList) {
-                scannerCode
-                        .append(INDENT_4)
-                        .append(INDENT_4)
-                        .append("finalTags.add(").append(tag).append(");\n");
-            }
-            scannerCode.append("\n" +
-                    "        // Restoring recognizers from files.\n" +
-                    "        this.recognizers = new HashMap<>();\n");
-            for (String modeName : modes.keySet()) {
-                String fileName = prefix + recognizersDirName + "/" + modeName + ".reco";
-                scannerCode
-                        .append(INDENT_4)
-                        .append(INDENT_4)
-                        .append("this.recognizers.put(").append(modeName).append(", ")
-                        .append("new LexicalRecognizer(\"")
-                        .append(fileName)
-                        .append("\", finalTags));\n");
+                            "        this.currIndex = 0;\n" +
+                            "        this.start = 0;\n" +
+                            "        this.hasNext = true;\n");
+
+            if (!direct) {
+                scannerCode.append("\n" +
+                        "        // Building tag list for correct restoring of recognizers from files.\n" +
+                        "        List<StateTag> finalTags = new ArrayList<>();\n");
+
+                for (StateTag tag : priorityList) {
+                    scannerCode
+                            .append(INDENT_4)
+                            .append(INDENT_4)
+                            .append("finalTags.add(").append(tag).append(");\n");
+                }
+                String fileName = prefix + recognizersDirName + "/" + scannerClassName + ".reco";
+                scannerCode.append("\n" +
+                        "        // Restoring recognizer from file, its modes are in the order of Mode.\n" +
+                        "        this.recognizer = new LexicalRecognizer(\"").append(fileName).append("\", finalTags);\n" +
+                        "        this.initialOffsets = new int[Mode.values().length];\n" +
+                        "        for (Mode mode : Mode.values()) {\n" +
+                        "            this.initialOffsets[mode.ordinal()] = " +
+                        "this.recognizer.getInitialOffset(mode.ordinal());\n" +
+                        "        }\n" +
+                        "        // assuming general use case that all token starts are recognized by default mode\n" +
+                        "        this.tokenStarts = this.recognizer.getTokenStartSet(INITIAL.ordinal());\n" +
+                        "\n" +
+                        "        // just in case\n" +
+                        "        resetCurrState();\n");
             }
-            scannerCode.append("\n" +
-                    "        // just in case\n" +
-                    "        resetCurrState();\n" +
-                    "    }\n" +
+            scannerCode.append("    }\n" +
                     "\n" +
                     "    public String getInputText() {\n" +
                     "        return inputText.toString();\n" +
                     "    }\n" +
                     "\n" +
-                    "    protected void resetCurrState() {\n" +
-                    "        this.currState = getCurrentRecognizer().getInitialState();\n" +
-                    "    }\n" +
-                    "\n" +
+                    "    protected void resetCurrState() {\n");
+            scannerCode.append(direct ?
+                    "        // direct coded recognizers always start from their initial states\n" :
+                    "        this.currState = this.initialOffsets[this.currentMode.ordinal()];\n" +
+                            "        this.backingUp = this.memo != null ||" +
+                            " this.recognizer.needsBackingUp(this.currentMode.ordinal());\n" +
+                            "        if (this.memo != null) {\n" +
+                            "            this.memo.startMatch(this.currIndex);\n" +
+                            "        }\n");
+            scannerCode.append("    }\n" +
+                    "\n");
+            if (!direct) {
+                scannerCode.append("    /**\n" +
+                        "     * In linear time mode, states known to fail at given input index are remembered\n" +
+                        "     * (see MaximalMunchMemo), so that no input is scanned over and over again after matches.\n" +
+                        "     * Meant for input that may be made to exploit that, it takes memory and some speed otherwise.\n" +
+                        "     */\n" +
+                        "    public void setLinearTime(boolean linearTime) {\n" +
+                        "        this.memo = linearTime ? new MaximalMunchMemo(this.recognizer) : null;\n" +
+                        "        resetCurrState();\n" +
+                        "    }\n" +
+                        "\n");
+            }
+            scannerCode.append(
                     "    protected void switchToMode(Mode mode) {\n" +
                     "        this.currentMode = mode;\n" +
                     "        resetCurrState();\n" +
                     "    }\n" +
                     "\n" +
                     "    protected void setStartToCurrentPosition() {\n" +
-                    "        this.start = this.currPos;\n" +
+                    "        this.start = this.currIndex;\n" +
+                    "        // streamed input is only retained from the current token's start onward\n" +
+                    "        if (!this.batching) {\n" +
+                    "            this.inputText.release(this.start);\n" +
+                    "        }\n" +
                     "    }\n" +
                     "\n" +
                     "    private void advanceCurrentPosition() {\n" +
-                    "        int index = this.currPos.getIndex();\n" +
-                    "        int codePoint = this.inputText.codePointAt(index);\n" +
-                    "        int nextCodePoint = this.inputText.codePointAt(index + 1);\n" +
-                    "\n" +
-                    "        if (codePoint != Text.EOI) {\n" +
-                    "            int line = this.currPos.getLine();\n" +
-                    "            // CARRET not followed by NEWLINE will also count as line break\n" +
-                    "            if ((codePoint == NEWLINE) || ((codePoint == CARRET) && (nextCodePoint != NEWLINE))) {\n" +
-                    "                this.currPos = new Position(line + 1, 1, index + 1);\n" +
-                    "            } else {\n" +
-                    "                int pos = this.currPos.getPos();\n" +
-                    "                this.currPos = new Position(line, pos + 1, index + 1);\n" +
-                    "            }\n" +
+                    "        if (getCurrentCodePoint() != Text.EOI) {\n" +
+                    "            this.currIndex++;\n" +
                     "        }\n" +
                     "    }\n" +
                     "\n" +
+                    "    private Position getCurrentPosition() {\n" +
+                    "        return this.inputText.positionAt(this.currIndex);\n" +
+                    "    }\n" +
+                    "\n" +
                     "    private String getTextFragment(Fragment span) {\n" +
                     "        return Utility.getTextFragmentAsString(this.inputText, span);\n" +
                     "    }\n" +
                     "\n" +
                     "    private int getCurrentCodePoint() {\n" +
-                    "        int cp = this.currPos.getIndex();\n" +
-                    "        return this.inputText.codePointAt(cp);\n" +
-                    "    }\n" +
-                    "\n" +
-                    "    private boolean atPotentialTokenStart() {\n" +
-                    "        int currCodePoint = getCurrentCodePoint();\n" +
-                    "        // assuming general use case that all token starts are recognized by default mode\n" +
-                    "        LexicalRecognizer recognizer = this.recognizers.get(INITIAL);\n" +
-                    "        int nextState = recognizer.transition(recognizer.getInitialState(), currCodePoint);\n" +
-                    "        return nextState != LexicalRecognizer.DEAD_END_STATE;\n" +
-                    "    }\n" +
-                    "\n" +
-                    "    private LexicalRecognizer getCurrentRecognizer() {\n" +
-                    "        return this.recognizers.get(this.currentMode);\n" +
-                    "    }\n" +
-                    "\n" +
-                    "    private boolean isFinal(int currState) {\n" +
-                    "        return StateTag.isFinal(this.recognizers.get(this.currentMode).getStateTag(currState));\n" +
+                    "        return this.inputText.codePointAt(this.currIndex);\n" +
                     "    }\n" +
                     "\n" +
+                    "    private void skipToPotentialTokenStart() {\n");
+            if (direct) {
+                scannerCode.append("        // assuming general use case that all token starts are recognized" +
+                        " by default mode\n" +
+                        "        while ((getCurrentCodePoint() != Text.EOI) && !startsToken(getCurrentCodePoint())) {\n" +
+                        "            advanceCurrentPosition();\n" +
+                        "        }\n" +
+                        "    }\n" +
+                        "\n" +
+                        "    // runs recognizer of current mode, see scanINITIAL()\n" +
+                        "    private int scan() {\n" +
+                        "        switch (this.currentMode) {\n");
+                for (String modeName : modes.keySet()) {
+                    scannerCode.append("            case ").append(modeName).append(":\n")
+                            .append("                return scan").append(modeName).append("();\n");
+                }
+                scannerCode.append("        }\n" +
+                        "        throw new IllegalStateException(\"Unknown mode: \" + this.currentMode);\n" +
+                        "    }\n");
+            } else {
+                scannerCode.append("        // input is skipped in bulk, rather than code point by code point\n" +
+                        "        this.currIndex = this.inputText.indexOfAny(this.currIndex, this.tokenStarts);\n" +
+                        "    }\n" +
+                        "\n" +
+                        "    // states are offsets of LexicalRecognizer's unchecked API\n" +
+                        "    private int nextState(int codePoint) {\n" +
+                        "        if (codePoint == Text.EOI) {\n" +
+                        "            return LexicalRecognizer.DEAD_END_STATE;\n" +
+                        "        }\n" +
+                        "        return this.recognizer.nextOffset(this.currState, codePoint);\n" +
+                        "    }\n" +
+                        "\n" +
+                        "    // For modes without backing-up states (see LexicalRecognizer.getBackingUpStates()),\n" +
+                        "    // runs the recognizer up to the symbol leading to dead-end state, without looking for\n" +
+                        "    // final states on the way: the match (if any) ends where it stops.\n" +
+                        "    private void skipToDeadEnd() {\n" +
+                        "        int state = this.currState;\n" +
+                        "        int index = this.currIndex;\n" +
+                        "        while (true) {\n" +
+                        "            int codePoint = this.inputText.codePointAt(index);\n" +
+                        "            int nextState = (codePoint == Text.EOI) ?\n" +
+                        "                    LexicalRecognizer.DEAD_END_STATE : this.recognizer.nextOffset(state, codePoint);\n" +
+                        "            if (nextState == LexicalRecognizer.DEAD_END_STATE) {\n" +
+                        "                break;\n" +
+                        "            }\n" +
+                        "            index++;\n" +
+                        "            if (nextState == state) {\n" +
+                        "                int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(state);\n" +
+                        "                if (exitSymbols != null) {\n" +
+                        "                    // the state is only left on these\n" +
+                        "                    index = this.inputText.indexOfAny(index, exitSymbols);\n" +
+                        "                }\n" +
+                        "            }\n" +
+                        "            state = nextState;\n" +
+                        "        }\n" +
+                        "        this.currState = state;\n" +
+                        "        this.currIndex = index;\n" +
+                        "    }\n");
+            }
+            scannerCode.append("\n" +
                     "    @Override\n" +
                     "    final public boolean hasNext() {\n" +
                     "        return this.hasNext;\n" +
@@ -398,138 +510,244 @@ public class RecognizerGenTest {
             );
             scannerCode.append("\n" +
                     "    public Token nextToken() {\n" +
-                    "        resetCurrState();\n" +
-                    "        setStartToCurrentPosition();\n" +
-                    "\n" +
-                    "        // Save last final state encountered\n" +
-                    "        OptionalInt lastFinalState = OptionalInt.empty();\n" +
-                    "        Position lastInFinal = new Position(); // will be used only if lastFinalState is present\n" +
-                    "\n" +
-                    "        while (true) {\n" +
-                    "            int currCodePoint = getCurrentCodePoint();\n" +
-                    "            int nextState = getCurrentRecognizer().transition(this.currState, currCodePoint);\n" +
+                    "        int kind = scanToken();\n" +
+                    "        if (this.actionToken != null) {\n" +
+                    "            return this.actionToken;\n" +
+                    "        }\n" +
+                    "        return createToken(kind, this.start, this.currIndex);\n" +
+                    "    }\n" +
                     "\n" +
-                    "            if (isFinal(this.currState)) {\n" +
-                    "                lastFinalState = OptionalInt.of(this.currState);\n" +
-                    "                lastInFinal = this.currPos;\n" +
+                    "    /**\n" +
+                    "     * Scans tokens into buffer until it's full or end of input is added, creating only the tokens\n" +
+                    "     * returned by actions. Tokens of the batch may be created with getToken() until the next batch\n" +
+                    "     * is scanned, streamed input is retained for that long. Buffer's kinds are ordinals of\n" +
+                    "     * " + stateTagsEnumName + ", modes are ordinals of Mode.\n" +
+                    "     *\n" +
+                    "     * @return number of tokens added\n" +
+                    "     */\n" +
+                    "    public int tokenizeInto(TokenBuffer buffer) {\n" +
+                    "        this.inputText.release(this.currIndex);\n" +
+                    "        this.batching = true;\n" +
+                    "        try {\n" +
+                    "            int added = 0;\n" +
+                    "            while (!buffer.isFull()) {\n" +
+                    "                int kind = scanToken();\n" +
+                    "                if (this.actionToken != null) {\n" +
+                    "                    buffer.add(this.actionToken, kind, this.tokenMode);\n" +
+                    "                } else {\n" +
+                    "                    buffer.add(kind, this.start, this.currIndex, this.tokenMode);\n" +
+                    "                }\n" +
+                    "                added++;\n" +
+                    "                if (kind == TokenBuffer.END_OF_INPUT) {\n" +
+                    "                    break;\n" +
+                    "                }\n" +
                     "            }\n" +
+                    "            return added;\n" +
+                    "        } finally {\n" +
+                    "            this.batching = false;\n" +
+                    "        }\n" +
+                    "    }\n" +
+                    "\n" +
+                    "    /**\n" +
+                    "     * @param i index of a token scanned by tokenizeInto() into buffer\n" +
+                    "     */\n" +
+                    "    public Token getToken(TokenBuffer buffer, int i) {\n" +
+                    "        Token token = buffer.getToken(i);\n" +
+                    "        if (token != null) {\n" +
+                    "            return token;\n" +
+                    "        }\n" +
+                    "        return createToken(buffer.getKind(i), buffer.getStartingIndex(i), buffer.getFollowingIndex(i));\n" +
+                    "    }\n" +
                     "\n" +
-                    "            if (nextState != LexicalRecognizer.DEAD_END_STATE) {\n" +
-                    "                this.currState = nextState;\n" +
-                    "                advanceCurrentPosition();\n" +
-                    "            } else {\n" +
-                    "                // it's time to stop\n" +
+                    "    /**\n" +
+                    "     * Scans the next token, leaving its bounds in start and currIndex.\n" +
+                    "     *\n" +
+                    "     * @return accept index of the token's final state, TokenBuffer.ERROR or TokenBuffer.END_OF_INPUT\n" +
+                    "     */\n" +
+                    "    private int scanToken() {\n" +
+                    "        this.actionToken = null;\n" +
+                    "        resetCurrState();\n" +
+                    "        setStartToCurrentPosition();\n" +
+                    "\n");
+            if (direct) {
+                scannerCode.append("        while (true) {\n" +
+                        "            // recognizer stops by itself, at the first symbol leading to dead-end state\n" +
+                        "            int lastAccept = scan();\n" +
+                        "            int lastInFinal = this.lastInFinal;\n" +
+                        "            int currCodePoint = getCurrentCodePoint();\n" +
+                        "\n");
+            } else {
+                scannerCode.append("        // Save accept index of last final state encountered\n" +
+                        "        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;\n" +
+                        "        int lastInFinal = 0; // will be used only if lastAccept is present\n" +
+                        "\n" +
+                        "        while (true) {\n" +
+                        "            if (!this.backingUp) {\n" +
+                        "                // the state it stops in is the one to look at\n" +
+                        "                skipToDeadEnd();\n" +
+                        "            }\n" +
+                        "            int currCodePoint = getCurrentCodePoint();\n" +
+                        "            int nextState = nextState(currCodePoint);\n" +
+                        "\n" +
+                        "            int accept = this.recognizer.getAcceptIndexAtOffset(this.currState);\n" +
+                        "            if (accept != LexicalRecognizer.NOT_ACCEPTING) {\n" +
+                        "                lastAccept = accept;\n" +
+                        "                lastInFinal = this.currIndex;\n" +
+                        "            }\n" +
+                        "\n" +
+                        "            if (this.memo != null) {\n" +
+                        "                // until something matched, scanning goes on to dead-end state, as usual\n" +
+                        "                if (!this.memo.visit(this.currState, this.currIndex) &&\n" +
+                        "                        lastAccept != LexicalRecognizer.NOT_ACCEPTING) {\n" +
+                        "                    nextState = LexicalRecognizer.DEAD_END_STATE;\n" +
+                        "                }\n" +
+                        "            }\n" +
+                        "\n" +
+                        "            if (nextState != LexicalRecognizer.DEAD_END_STATE) {\n" +
+                        "                advanceCurrentPosition();\n" +
+                        "                // skipped states couldn't be remembered\n" +
+                        "                if (nextState == this.currState && this.memo == null) {\n" +
+                        "                    int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(nextState);\n" +
+                        "                    if (exitSymbols != null) {\n" +
+                        "                        // the state is only left on these\n" +
+                        "                        this.currIndex = this.inputText.indexOfAny(this.currIndex, exitSymbols);\n" +
+                        "                    }\n" +
+                        "                }\n" +
+                        "                this.currState = nextState;\n" +
+                        "            } else {\n" +
+                        "                // it's time to stop\n");
+            }
+
+            // handling of matches and errors is the same for both kinds of recognizers,
+            // it's written at the nesting level of table driven ones
+            StringBuilder tokenCode = new StringBuilder();
+            tokenCode.append("                this.tokenMode = this.currentMode.ordinal();\n" +
                     "\n" +
                     "                // nothing matched\n" +
-                    "                if (!isFinal(this.currState) && !lastFinalState.isPresent()) {\n" +
+                    "                if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {\n" +
                     "                    /// This guards against finding EOI while completing an earlier started token\n" +
                     "                    if (\n" +
                     "                            (currCodePoint == Text.EOI || currCodePoint == this.inputText.getAltEoi()) &&\n" +
-                    "                                    this.currPos.equals(this.start)\n" +
+                    "                                    this.currIndex == this.start\n" +
                     "                    ) {\n" +
                     "                        this.hasNext = false;\n" +
-                    "                        return Domain.END_OF_INPUT.createToken(this.inputText, new Fragment(currPos, currPos));\n" +
+                    "                        return TokenBuffer.END_OF_INPUT;\n" +
                     "                    }\n" +
                     "\n" +
                     "                    // we've found an error\n" +
                     "\n" +
                     "                    /// ERROR HANDLING CODE GOES HERE!\n" +
-                    "                    handleError(currCodePoint, this.currentMode, this.currPos);\n" +
+                    "                    handleError(currCodePoint, this.currentMode, getCurrentPosition());\n" +
                     "\n" +
                     "                    // recovery\n" +
                     "                    // symbol we've stumbled upon might be the beginning of a new token\n" +
-                    "                    while ((getCurrentCodePoint() != Text.EOI) && !atPotentialTokenStart()) {\n" +
-                    "                        advanceCurrentPosition();\n" +
-                    "                    }\n" +
+                    "                    skipToPotentialTokenStart();\n" +
                     "                    switchToMode(INITIAL); // resetting to default mode after error recovery\n" +
-                    "                    Fragment invalidFragment = new Fragment(this.start, this.currPos);\n" +
-                    "\n" +
-                    "                    return Domain.ERROR.createToken(this.inputText, invalidFragment);\n" +
+                    "                    return TokenBuffer.ERROR;\n" +
                     "                } else {\n" +
-                    "                    if (lastFinalState.isPresent()) {\n" +
-                    "                        this.currPos = lastInFinal;\n" +
-                    "                        this.currState = lastFinalState.getAsInt();\n" +
-                    "                    }\n" +
-                    "                    // now currState is certainly final\n" +
-                    "\n" +
-                    "                    lastFinalState = OptionalInt.empty(); // something matched, no reusing this!\n" +
-                    "                    Fragment scannedFragment = new Fragment(this.start, this.currPos);\n" +
-                    "                    Optional<Token> optToken = Optional.empty();\n" +
-                    "\n" +
-                    "                    // this cast should always work, provided all final ones are in one enum\n" +
-                    "                    // alternative: switch vs instanceof\n" +
-                    "                    "
-            )
-                    .append(stateTagsEnumName).append(" tag = (").append(stateTagsEnumName)
-                    .append(") getCurrentRecognizer().getStateTag(this.currState);\n" +
-                            "\n" +
-                            "                    /// TIP: for ignored expressions (e.g. whitespace) case should just" +
-                            " reset start\n" +
-                            "                    switch (tag) {\n"
+                    "                    this.currIndex = lastInFinal;\n" +
+                    "                    // last final state is certainly present\n" +
+                    "\n")
+                    .append(direct ? "" : "                    if (this.memo != null) {\n" +
+                            "                        this.memo.endMatch(lastInFinal);\n" +
+                            "                    }\n" +
+                            "\n")
+                    .append(
+                    "                    /// TIP: for ignored expressions (e.g. whitespace) case should just" +
+                    " reset start\n" +
+                    "                    // accept indices are ordinals of ")
+                    .append(stateTagsEnumName).append("\n" +
+                            "                    switch (lastAccept) {\n"
                     );
 
             List<String> actionNames = new ArrayList<>();
+            // tokens of Return and SwitchReturn rules are only created when asked for
+            StringBuilder createTokenCode = new StringBuilder();
 
             for (AST.Rules.Rule rule : rules) {
                 String stateName = rule.stateName;
                 AST.Rules.Rule.Action action = rule.action;
-                scannerCode.append("                        case ")
-                        .append(stateName).append(":\n");
+                tokenCode.append("                        case ")
+                        .append(stateNames.indexOf(stateName)).append(": // ").append(stateName).append("\n");
                 if (action instanceof AST.Rules.Rule.Action.Call) {
                     String funcName = ((AST.Rules.Rule.Action.Call) action).funcName;
-                    scannerCode.append(generateActionFuncCall(funcName));
+                    tokenCode.append(generateActionFuncCall(funcName));
+                    tokenCode.append("                            if (this.actionToken != null) {\n" +
+                            "                                return lastAccept;\n" +
+                            "                            }\n");
                     actionNames.add(funcName);
                 } else if (action instanceof AST.Rules.Rule.Action.Ignore) {
-                    scannerCode.append("                            setStartToCurrentPosition();\n");
+                    tokenCode.append("                            setStartToCurrentPosition();\n");
                 } else if (action instanceof AST.Rules.Rule.Action.Switch) {
                     String modeName = ((AST.Rules.Rule.Action.Switch) action).modeName;
-                    scannerCode.append("                            ")
+                    tokenCode.append("                            ")
                             .append("switchToMode(").append(modeName).append(");\n");
                 } else if (action instanceof AST.Rules.Rule.Action.Return) {
                     String domainName = ((AST.Rules.Rule.Action.Return) action).domainName;
-                    String enumName = domainEnums.get(domainName);
-                    scannerCode.append("                            ")
-                            .append("optToken = Optional.of(\n")
-                            .append("                                    ")
-                            .append(enumName)
-                            .append("\n                                            .")
-                            .append(domainName)
-                            .append(".createToken(this.inputText, scannedFragment)\n")
-                            .append("                            );\n");
+                    tokenCode.append("                            return lastAccept;\n");
+                    createTokenCode.append(generateCreateTokenCase(stateNames.indexOf(stateName), stateName,
+                            domainEnums.get(domainName), domainName));
+                    continue;
                 } else if (action instanceof AST.Rules.Rule.Action.SwitchReturn) {
                     String modeName = ((AST.Rules.Rule.Action.SwitchReturn) action).modeName;
                     String domainName = ((AST.Rules.Rule.Action.SwitchReturn) action).domainName;
-                    String enumName = domainEnums.get(domainName);
 
-                    scannerCode.append("                            ")
+                    tokenCode.append("                            ")
                             .append("switchToMode(").append(modeName).append(");\n");
-                    scannerCode.append("                            ")
-                            .append("optToken = Optional.of(\n")
-                            .append("                                    ")
-                            .append(enumName)
-                            .append("\n                                            .")
-                            .append(domainName)
-                            .append(".createToken(this.inputText, scannedFragment)\n")
-                            .append("                            );\n");
+                    tokenCode.append("                            return lastAccept;\n");
+                    createTokenCode.append(generateCreateTokenCase(stateNames.indexOf(stateName), stateName,
+                            domainEnums.get(domainName), domainName));
+                    continue;
                 }
-                scannerCode.append("                            break;\n");
+                tokenCode.append("                            break;\n");
             }
-            scannerCode.append("                    }\n" +
-                    "\n" +
-                    "                    if (optToken.isPresent()) {\n" +
-                    "                        return optToken.get();\n" +
-                    "                    } else {\n" +
-                    "                        resetCurrState();\n" +
-                    "                    }\n" +
-                    "                }\n" +
-                    "            }\n" +
-                    "        }\n" +
-                    "    }\n\n"
+            tokenCode.append("                    }\n");
+            if (!direct) {
+                tokenCode.append("                    lastAccept = LexicalRecognizer.NOT_ACCEPTING;" +
+                        " // something matched, no reusing this!\n");
+            }
+            tokenCode.append("                    resetCurrState();\n" +
+                    "                }\n"
             );
+            if (direct) {
+                scannerCode.append(tokenCode.toString().replaceAll("(?m)^" + INDENT_4, ""))
+                        .append("        }\n" +
+                                "    }\n\n");
+
+                for (String modeName : modes.keySet()) {
+                    scannerCode.append("    // direct coded recognizer of mode ").append(modeName).append("\n")
+                            .append(DirectCodeGenerator.generateScanMethod(
+                                    modes.get(modeName), "scan" + modeName, priorityMap
+                            ))
+                            .append("\n");
+                }
+                scannerCode.append(DirectCodeGenerator.generateTokenStartPredicate(modes.get("INITIAL"), "startsToken"))
+                        .append("\n");
+            } else {
+                scannerCode.append(tokenCode)
+                        .append("            }\n" +
+                                "        }\n" +
+                                "    }\n\n");
+            }
+
+            scannerCode.append("    private Token createToken(int kind, int start, int follow) {\n" +
+                    "        switch (kind) {\n" +
+                    "            case TokenBuffer.END_OF_INPUT:\n" +
+                    "                return Domain.END_OF_INPUT.createToken(this.inputText, start, follow);\n" +
+                    "            case TokenBuffer.ERROR:\n" +
+                    "                return Domain.ERROR.createToken(this.inputText, start, follow);\n")
+                    .append(createTokenCode)
+                    .append("            default:\n" +
+                            "                throw new IllegalArgumentException(\"Kind \" + kind + \" doesn't make a token!\");\n" +
+                            "        }\n" +
+                            "    }\n\n");
 
             scannerCode.append("    protected abstract void " +
                     "handleError(int codePoint, Mode mode, Position errorAt);\n\n");
 
+            if (!actionNames.isEmpty()) {
+                scannerCode.append("    // actions return null if the match doesn't make a token\n");
+            }
             for (String actionName : actionNames) {
                 scannerCode.append(generateActionSignature(actionName));
             }
@@ -555,12 +773,18 @@ public class RecognizerGenTest {
     }
 
     static String generateActionFuncCall(String actionName) {
-        return "                            optToken = " +
-                actionName + "(this.inputText, scannedFragment);\n";
+        return "                            this.actionToken = " + actionName +
+                "(this.inputText, new Fragment(this.inputText, this.start, this.currIndex));\n";
+    }
+
+    static String generateCreateTokenCase(int acceptIndex, String stateName, String enumName, String domainName) {
+        return "            case " + acceptIndex + ": // " + stateName + "\n" +
+                "                return " + enumName + "\n" +
+                "                        ." + domainName + ".createToken(this.inputText, start, follow);\n";
     }
 
     static String generateActionSignature(String actionName) {
-        return "    protected abstract Optional<Token> " +
+        return "    protected abstract Token " +
                 actionName +
                 "(Text text, Fragment fragment);\n\n";
     }
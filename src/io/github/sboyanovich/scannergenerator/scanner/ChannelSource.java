@@ -0,0 +1,45 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes bytes pulled from a (blocking) channel. Channel is not closed by this class.
+ */
+final class ChannelSource extends CharBufferSource {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private boolean endOfInput;
+
+    ChannelSource(ReadableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        this.endOfInput = false;
+    }
+
+    @Override
+    boolean fill(CharBuffer chars) throws IOException {
+        if (!this.endOfInput && this.channel.read(this.bytes) == -1) {
+            this.endOfInput = true;
+        }
+        this.bytes.flip();
+        this.decoder.decode(this.bytes, chars, this.endOfInput);
+        this.bytes.compact();
+        if (this.endOfInput && this.bytes.position() == 0) {
+            this.decoder.flush(chars);
+            return false;
+        }
+        return true;
+    }
+}
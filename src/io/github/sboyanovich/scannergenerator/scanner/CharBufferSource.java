@@ -0,0 +1,59 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Base for sources that produce UTF-16 chars, takes care of combining surrogate pairs into code points.
+ */
+abstract class CharBufferSource implements CodePointSource {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final CharBuffer chars;
+    private boolean exhausted;
+
+    CharBufferSource() {
+        this.chars = CharBuffer.allocate(CHUNK_SIZE);
+        this.chars.flip(); // empty, ready for reading
+        this.exhausted = false;
+    }
+
+    /**
+     * Appends next portion of input to chars (which is in write mode and always has some room left).
+     * Appending nothing is allowed.
+     *
+     * @return false if input has ended and nothing will ever be appended again
+     */
+    abstract boolean fill(CharBuffer chars) throws IOException;
+
+    private void refill() throws IOException {
+        this.chars.compact();
+        boolean more = fill(this.chars);
+        this.chars.flip();
+        this.exhausted = !more;
+    }
+
+    @Override
+    public int read(int[] buffer, int offset, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            // two chars at hand guarantee that a surrogate pair is never split between chunks
+            if (this.chars.remaining() < 2 && !this.exhausted) {
+                refill();
+                continue;
+            }
+            if (!this.chars.hasRemaining()) {
+                break;
+            }
+            char c = this.chars.get();
+            if (Character.isHighSurrogate(c) && this.chars.hasRemaining() &&
+                    Character.isLowSurrogate(this.chars.get(this.chars.position()))) {
+                buffer[offset + count] = Character.toCodePoint(c, this.chars.get());
+            } else {
+                buffer[offset + count] = c;
+            }
+            count++;
+        }
+        return (count == 0 && length > 0) ? -1 : count;
+    }
+}
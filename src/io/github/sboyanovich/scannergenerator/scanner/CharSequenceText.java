@@ -0,0 +1,46 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+/**
+ * UTF-16 input, indexed by char offsets rather than by code points. Read in place by the Text
+ * of a Utf16Scanner, so that its tokens are created by the usual Domain factories without copying input.
+ */
+final class CharSequenceText implements TextInput {
+    private final CharSequence chars;
+
+    CharSequenceText(CharSequence chars) {
+        this.chars = chars;
+    }
+
+    @Override
+    public int length() {
+        return this.chars.length();
+    }
+
+    /**
+     * @return code point starting at offset (or a lone surrogate)
+     */
+    @Override
+    public int codePointAt(int index) {
+        return Character.codePointAt(this.chars, index);
+    }
+
+    @Override
+    public int codePointCount(int start, int end) {
+        return Character.codePointCount(this.chars, start, end);
+    }
+
+    @Override
+    public TextInput subInput(int start, int end) {
+        return new CharSequenceText(this.chars.subSequence(start, end));
+    }
+
+    @Override
+    public Lexeme lexeme(int start, int end) {
+        return new Lexeme(this.chars, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return this.chars.toString();
+    }
+}
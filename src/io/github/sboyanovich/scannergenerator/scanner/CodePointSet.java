@@ -0,0 +1,62 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of code points, meant for searching input (see Text.indexOfAny(int, CodePointSet)).
+ * <p>
+ * Members of the Basic Multilingual Plane are kept as a bitset, so that testing them is a shift and
+ * a data access. Others are kept as sorted ranges, these are rare in input and few in sets.
+ */
+public final class CodePointSet {
+    private static final int BITS_LIMIT = 0x10000;
+
+    // bits of [0, BITS_LIMIT), up to the last member there
+    private final long[] bits;
+    // {first0, last0, first1, last1, ...} of members above BITS_LIMIT
+    private final int[] ranges;
+
+    /**
+     * @param ranges {first, last} of members, sorted and disjoint
+     */
+    CodePointSet(List<int[]> ranges) {
+        int lastInBits = -1;
+        int above = 0;
+        for (int[] range : ranges) {
+            if (range[0] < BITS_LIMIT) {
+                lastInBits = Math.min(range[1], BITS_LIMIT - 1);
+            }
+            if (range[1] >= BITS_LIMIT) {
+                above++;
+            }
+        }
+
+        this.bits = new long[(lastInBits >> 6) + 1];
+        this.ranges = new int[2 * above];
+        int k = 0;
+        for (int[] range : ranges) {
+            for (int codePoint = range[0]; codePoint <= Math.min(range[1], BITS_LIMIT - 1); codePoint++) {
+                this.bits[codePoint >> 6] |= 1L << codePoint;
+            }
+            if (range[1] >= BITS_LIMIT) {
+                this.ranges[k++] = Math.max(range[0], BITS_LIMIT);
+                this.ranges[k++] = range[1];
+            }
+        }
+    }
+
+    /**
+     * @param codePoint any int, EOI included (it's never a member)
+     */
+    public boolean contains(int codePoint) {
+        if (codePoint < BITS_LIMIT) {
+            int word = codePoint >> 6;
+            // EOI gives negative word
+            return word >= 0 && word < this.bits.length && (this.bits[word] & (1L << codePoint)) != 0;
+        }
+        // index of the first range's bound above codePoint is odd if it's inside a range
+        int found = Arrays.binarySearch(this.ranges, codePoint);
+        return found >= 0 || (-found - 1) % 2 == 1;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+
+/**
+ * Supplies code points to a lazily decoded Text, chunk by chunk.
+ */
+interface CodePointSource {
+    /**
+     * Reads at most length code points into buffer, starting at offset.
+     *
+     * @return number of code points read, or -1 if the source is exhausted
+     */
+    int read(int[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,28 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+/**
+ * Lexical recognizer compiled into code at runtime, see LexicalRecognizer.specialize().
+ * Implementations are stateless and may be shared between scanners.
+ */
+public interface CompiledRecognizer {
+    /**
+     * Runs the recognizer on text from given index until it reaches dead-end state (EOI always leads there).
+     *
+     * @return accept index of the last final state met (as in LexicalRecognizer.getAcceptIndexAtOffset())
+     * and index following the match, packed by pack(). If no final state was met, the index is where
+     * the recognizer stopped.
+     */
+    long match(Text text, int from);
+
+    static long pack(int position, int acceptIndex) {
+        return ((long) position << 32) | (acceptIndex & 0xFFFFFFFFL);
+    }
+
+    static int getPosition(long match) {
+        return (int) (match >>> 32);
+    }
+
+    static int getAcceptIndex(long match) {
+        return (int) match;
+    }
+}
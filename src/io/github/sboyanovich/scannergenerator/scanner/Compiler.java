@@ -1,11 +1,13 @@
 package io.github.sboyanovich.scannergenerator.scanner;
 
+import java.nio.CharBuffer;
 import java.util.SortedMap;
 
 public class Compiler {
     private MessageList messages;
     private NameDictionary names;
     private LexicalRecognizer dfa;
+    private CompiledRecognizer specialized;
 
     public Compiler(LexicalRecognizer dfa) {
         this.messages = new MessageList();
@@ -14,9 +16,54 @@ public class Compiler {
     }
 
     public Scanner getScanner(String program) {
+        return getScanner(new Text(program));
+    }
+
+    public Scanner getScanner(Text program) {
         return new Scanner(program, this, this.dfa);
     }
 
+    public Scanner getSpecializedScanner(String program) {
+        return getSpecializedScanner(new Text(program));
+    }
+
+    /**
+     * Scanner runs the recognizer compiled into code (see LexicalRecognizer.specialize()). Compilation happens
+     * once per compiler, on first call, and takes a while, so this pays off for long or numerous inputs.
+     * Requires a JDK at runtime, use getScanner() where only a JRE is available.
+     *
+     * @throws IllegalStateException if there is no system Java compiler or compilation fails
+     */
+    public Scanner getSpecializedScanner(Text program) {
+        if (this.specialized == null) {
+            this.specialized = this.dfa.specialize();
+        }
+        return new Scanner(program, this, this.dfa, this.specialized, null);
+    }
+
+    public Scanner getLinearTimeScanner(String program) {
+        return getLinearTimeScanner(new Text(program));
+    }
+
+    /**
+     * Scanner takes linear time whatever the recognizer (see MaximalMunchMemo), at the cost of memory and
+     * some speed on usual inputs. Meant for input that may be made to exploit rescanning of maximal munch.
+     */
+    public Scanner getLinearTimeScanner(Text program) {
+        return new Scanner(program, this, this.dfa, null, new MaximalMunchMemo(this.dfa));
+    }
+
+    /**
+     * Input is scanned as it is, neither copied nor normalized. Token positions are indexed by char offsets.
+     */
+    public Utf16Scanner getUtf16Scanner(CharSequence program) {
+        return new Utf16Scanner(program, this, this.dfa);
+    }
+
+    public Utf16Scanner getUtf16Scanner(char[] program) {
+        return getUtf16Scanner(CharBuffer.wrap(program));
+    }
+
     public void addError(Position coord, String text) {
         this.messages.addError(coord, text);
     }
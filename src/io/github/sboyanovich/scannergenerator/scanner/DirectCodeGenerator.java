@@ -0,0 +1,299 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.utility.CodePointClassMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits lexical recognizers as Java code, for scanners that don't interpret transition tables
+ * (direct coded scanners, like those of re2c).
+ * <p>
+ * Every state becomes a case of a switch. Its transitions are picked by a binary decision tree over ranges
+ * of code points, while transitions of a state to itself become a tight loop. No tables are loaded,
+ * so the JIT is free to keep everything in registers.
+ * <p>
+ * Emitted code either is a method of a generated scanner, which has fields Text inputText, int currIndex
+ * and int lastInFinal, or a CompiledRecognizer class.
+ */
+public class DirectCodeGenerator {
+    private static final String INDENT_4 = "    ";
+    private static final String CODE_POINT = "codePoint";
+
+    /**
+     * Emitted method runs the recognizer from currIndex until it reaches dead-end state.
+     * It leaves currIndex where the recognizer stopped and lastInFinal where the last final state was met,
+     * and returns accept index of that state (NOT_ACCEPTING if there was none).
+     *
+     * @param acceptIndices indices to return for final states' tags (as in LexicalRecognizer.writeToFile())
+     * @return method declaration, indented as a class member
+     */
+    public static String generateScanMethod(
+            LexicalRecognizer recognizer,
+            String methodName,
+            Map<StateTag, Integer> acceptIndices
+    ) {
+        StringBuilder result = new StringBuilder();
+        result.append("    private int ").append(methodName).append("() {\n" +
+                "        Text text = this.inputText;\n" +
+                "        int index = this.currIndex;\n");
+        appendRecognizerLoop(result, recognizer, acceptIndices);
+        result.append("        this.currIndex = index;\n" +
+                "        this.lastInFinal = lastInFinal;\n" +
+                "        return lastAccept;\n" +
+                "    }\n");
+        return result.toString();
+    }
+
+    /**
+     * @param acceptIndices indices to return for final states' tags
+     * @return source of a public class in default package, implementing CompiledRecognizer
+     */
+    public static String generateRecognizerClass(
+            LexicalRecognizer recognizer,
+            String className,
+            Map<StateTag, Integer> acceptIndices
+    ) {
+        StringBuilder result = new StringBuilder();
+        result.append("import io.github.sboyanovich.scannergenerator.scanner.CompiledRecognizer;\n" +
+                "import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;\n" +
+                "import io.github.sboyanovich.scannergenerator.scanner.Text;\n" +
+                "\n" +
+                "public final class ").append(className).append(" implements CompiledRecognizer {\n" +
+                "    @Override\n" +
+                "    public long match(Text text, int from) {\n" +
+                "        int index = from;\n");
+        appendRecognizerLoop(result, recognizer, acceptIndices);
+        result.append("        int position = (lastAccept == LexicalRecognizer.NOT_ACCEPTING) ? index : lastInFinal;\n" +
+                "        return CompiledRecognizer.pack(position, lastAccept);\n" +
+                "    }\n" +
+                "}\n");
+        return result.toString();
+    }
+
+    // expects locals Text text and int index, leaves locals index, lastAccept and lastInFinal
+    private static void appendRecognizerLoop(
+            StringBuilder result,
+            LexicalRecognizer recognizer,
+            Map<StateTag, Integer> acceptIndices
+    ) {
+        List<int[]> classRuns = getClassRuns(recognizer.getClassMap());
+        int domain = recognizer.getClassMap().getDomain();
+        // without backing-up states, final states only need to be noted where the recognizer stops
+        boolean backingUp = recognizer.needsBackingUp(0);
+
+        result.append("        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;\n")
+                .append(backingUp ? "        int lastInFinal = index;\n" : "")
+                .append("        int state = ").append(recognizer.getInitialState()).append(";\n" +
+                "        dfa:\n" +
+                "        while (true) {\n" +
+                "            int codePoint = text.codePointAt(index);\n" +
+                "            switch (state) {\n");
+
+        String caseIndent = indent(5);
+        for (int state = 0; state < recognizer.getNumberOfStates(); state++) {
+            List<int[]> ranges = getRanges(recognizer, state, classRuns);
+
+            result.append(indent(4)).append("case ").append(state).append(":\n");
+
+            List<int[]> selfRanges = new ArrayList<>();
+            for (int[] range : ranges) {
+                if (range[2] == state) {
+                    selfRanges.add(range);
+                }
+            }
+            if (!selfRanges.isEmpty()) {
+                result.append(caseIndent).append("while (").append(condition(selfRanges, domain)).append(") {\n")
+                        .append(caseIndent).append(INDENT_4).append("index++;\n")
+                        .append(caseIndent).append(INDENT_4).append(CODE_POINT)
+                        .append(" = text.codePointAt(index);\n")
+                        .append(caseIndent).append("}\n");
+                // self loop is exhausted at this point, so its ranges may go anywhere
+                ranges = withoutSelfLoop(ranges, state);
+            }
+
+            StateTag tag = recognizer.getStateTag(state);
+            String accept = "";
+            if (StateTag.isFinal(tag)) {
+                accept = "lastAccept = " + acceptIndices.get(tag) + ";";
+                if (backingUp) {
+                    result.append(caseIndent).append(accept).append("\n")
+                            .append(caseIndent).append("lastInFinal = index;\n");
+                    accept = "";
+                }
+            }
+
+            appendDecisionTree(result, ranges, 0, ranges.size(), 5, accept);
+            // otherwise it would be unreachable
+            if (ranges.stream().anyMatch(range -> range[2] != LexicalRecognizer.DEAD_END_STATE)) {
+                result.append(caseIndent).append("break;\n");
+            }
+        }
+
+        result.append("            }\n" +
+                "            index++;\n" +
+                "        }\n")
+                .append(backingUp ? "" : "        int lastInFinal = index;\n");
+    }
+
+    /**
+     * Emitted method tells if a code point leads anywhere from the recognizer's initial state.
+     *
+     * @return method declaration, indented as a class member
+     */
+    public static String generateTokenStartPredicate(LexicalRecognizer recognizer, String methodName) {
+        List<int[]> classRuns = getClassRuns(recognizer.getClassMap());
+        int domain = recognizer.getClassMap().getDomain();
+
+        List<int[]> liveRanges = new ArrayList<>();
+        for (int[] range : getRanges(recognizer, recognizer.getInitialState(), classRuns)) {
+            if (range[2] != LexicalRecognizer.DEAD_END_STATE) {
+                liveRanges.add(range);
+            }
+        }
+
+        return "    private static boolean " + methodName + "(int " + CODE_POINT + ") {\n" +
+                "        return " + condition(liveRanges, domain) + ";\n" +
+                "    }\n";
+    }
+
+    // maximal runs of symbols of the same class: {first, last, class}
+    private static List<int[]> getClassRuns(CodePointClassMap map) {
+        List<int[]> result = new ArrayList<>();
+        for (int symbol = 0; symbol < map.getDomain(); symbol++) {
+            int eqClass = map.getEqClass(symbol);
+            int[] last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last != null && last[2] == eqClass) {
+                last[1] = symbol;
+            } else {
+                result.add(new int[]{symbol, symbol, eqClass});
+            }
+        }
+        return result;
+    }
+
+    // ranges {first, last, target} covering [EOI, domain - 1], EOI leads to dead-end state
+    private static List<int[]> getRanges(LexicalRecognizer recognizer, int state, List<int[]> classRuns) {
+        List<int[]> result = new ArrayList<>();
+        result.add(new int[]{Text.EOI, Text.EOI, LexicalRecognizer.DEAD_END_STATE});
+        for (int[] run : classRuns) {
+            appendRange(result, run[0], run[1], recognizer.transitionOnClass(state, run[2]));
+        }
+        return result;
+    }
+
+    private static void appendRange(List<int[]> ranges, int first, int last, int target) {
+        int[] previous = ranges.get(ranges.size() - 1);
+        if (previous[2] == target && previous[1] == first - 1) {
+            previous[1] = last;
+        } else {
+            ranges.add(new int[]{first, last, target});
+        }
+    }
+
+    // ranges of self loop are joined to preceding ones (there is always one, for EOI)
+    private static List<int[]> withoutSelfLoop(List<int[]> ranges, int state) {
+        List<int[]> result = new ArrayList<>();
+        for (int[] range : ranges) {
+            int target = (range[2] == state) ? result.get(result.size() - 1)[2] : range[2];
+            if (result.isEmpty()) {
+                result.add(new int[]{range[0], range[1], target});
+            } else {
+                appendRange(result, range[0], range[1], target);
+            }
+        }
+        return result;
+    }
+
+    // ranges[from, to) are adjacent, so only their bounds need to be compared,
+    // onStop is a statement to precede leaving the loop (may be empty)
+    private static void appendDecisionTree(
+            StringBuilder result, List<int[]> ranges, int from, int to, int depth, String onStop
+    ) {
+        String indent = indent(depth);
+        if (to - from == 1) {
+            int target = ranges.get(from)[2];
+            if (target == LexicalRecognizer.DEAD_END_STATE) {
+                if (!onStop.isEmpty()) {
+                    result.append(indent).append(onStop).append("\n");
+                }
+                result.append(indent).append("break dfa;\n");
+            } else {
+                result.append(indent).append("state = ").append(target).append(";\n");
+            }
+            return;
+        }
+        int middle = (from + to) / 2;
+        result.append(indent).append("if (").append(CODE_POINT).append(" < ")
+                .append(literal(ranges.get(middle)[0])).append(") {\n");
+        appendDecisionTree(result, ranges, from, middle, depth + 1, onStop);
+        result.append(indent).append("} else {\n");
+        appendDecisionTree(result, ranges, middle, to, depth + 1, onStop);
+        result.append(indent).append("}\n");
+    }
+
+    // ranges are within [EOI, domain - 1], complement is used if it's shorter
+    private static String condition(List<int[]> ranges, int domain) {
+        List<int[]> complement = new ArrayList<>();
+        int next = Text.EOI;
+        for (int[] range : ranges) {
+            if (range[0] > next) {
+                complement.add(new int[]{next, range[0] - 1});
+            }
+            next = range[1] + 1;
+        }
+        if (next <= domain - 1) {
+            complement.add(new int[]{next, domain - 1});
+        }
+
+        if (ranges.isEmpty()) {
+            return "false";
+        }
+        if (complement.isEmpty()) {
+            return "true";
+        }
+        if (complement.size() < ranges.size()) {
+            return "!(" + disjunction(complement, domain) + ")";
+        }
+        return disjunction(ranges, domain);
+    }
+
+    private static String disjunction(List<int[]> ranges, int domain) {
+        List<String> terms = new ArrayList<>();
+        for (int[] range : ranges) {
+            int first = range[0];
+            int last = range[1];
+            if (first == last) {
+                terms.add(CODE_POINT + " == " + literal(first));
+            } else if (first == Text.EOI) {
+                terms.add(CODE_POINT + " <= " + literal(last));
+            } else if (last == domain - 1) {
+                terms.add(CODE_POINT + " >= " + literal(first));
+            } else {
+                String term = CODE_POINT + " >= " + literal(first) + " && " + CODE_POINT + " <= " + literal(last);
+                terms.add((ranges.size() > 1) ? "(" + term + ")" : term);
+            }
+        }
+        return String.join(" || ", terms);
+    }
+
+    private static String literal(int symbol) {
+        if (symbol == Text.EOI) {
+            return "Text.EOI";
+        }
+        if (symbol >= ' ' && symbol <= '~' && symbol != '\'' && symbol != '\\') {
+            return "'" + (char) symbol + "'";
+        }
+        return String.format("0x%X", symbol);
+    }
+
+    private static String indent(int depth) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            result.append(INDENT_4);
+        }
+        return result.toString();
+    }
+}
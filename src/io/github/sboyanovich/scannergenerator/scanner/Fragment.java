@@ -1,24 +1,82 @@
 package io.github.sboyanovich.scannergenerator.scanner;
 
+/**
+ * Span of text, packed into a single long: starting index in the upper half, following index in the lower.
+ * Fragments made by scanners create their Positions only when asked for them, unless text is streamed:
+ * its input is released as scanning goes on, so positions are resolved right away, while it's retained.
+ */
 public class Fragment {
+    private final long span;
+
+    // positions are resolved against text when first asked for (or made, if it's streamed),
+    // null if fragment is made of positions
+    private Text text;
     private Position starting;
     private Position following;
 
     public Fragment(Position starting, Position following) {
+        this.span = pack(starting.getIndex(), following.getIndex());
+        this.text = null;
         this.starting = starting;
         this.following = following;
     }
 
+    public Fragment(Text text, int startingIndex, int followingIndex) {
+        this.span = pack(startingIndex, followingIndex);
+        this.text = text;
+        if (text.isStreamed()) {
+            this.starting = text.positionAt(startingIndex);
+            this.following = text.positionAt(followingIndex);
+        } else {
+            this.starting = null;
+            this.following = null;
+        }
+    }
+
+    public static long pack(int startingIndex, int followingIndex) {
+        return ((long) startingIndex << 32) | (followingIndex & 0xFFFFFFFFL);
+    }
+
+    public long getSpan() {
+        return this.span;
+    }
+
+    public int getStartingIndex() {
+        return (int) (this.span >>> 32);
+    }
+
+    public int getFollowingIndex() {
+        return (int) this.span;
+    }
+
     public Position getStarting() {
+        if (this.starting == null) {
+            this.starting = this.text.positionAt(getStartingIndex());
+        }
         return starting;
     }
 
     public Position getFollowing() {
+        if (this.following == null) {
+            this.following = this.text.positionAt(getFollowingIndex());
+        }
         return following;
     }
 
+    /**
+     * Text of a fragment made by a scanner, as a view of input (see Text.lexeme()).
+     *
+     * @throws IllegalStateException if fragment was made of positions
+     */
+    public Lexeme getLexeme() {
+        if (this.text == null) {
+            throw new IllegalStateException("Fragment has no text!");
+        }
+        return this.text.lexeme(getStartingIndex(), getFollowingIndex());
+    }
+
     @Override
     public String toString() {
-        return this.starting + "-" + this.following;
+        return getStarting() + "-" + getFollowing();
     }
 }
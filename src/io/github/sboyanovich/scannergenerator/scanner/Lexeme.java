@@ -0,0 +1,144 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+/**
+ * Read-only view of a piece of input, typically the text of a token. Nothing is copied on creation:
+ * a String is only built when toString() is called, and then it's cached.
+ * <p>
+ * Lexemes are backed either by code points of a Text or by chars of a CharSequence.
+ * Views of streamed texts stay valid after input is released, since those are made from a copy.
+ */
+public final class Lexeme implements CharSequence {
+    // code point backing, null if backed by chars
+    private final int[] codePoints;
+    private final int offset;
+    private final int count;
+
+    // char backing, null if backed by code points
+    private final CharSequence chars;
+
+    // computed lazily, -1 if not known yet
+    private int charLength;
+    private String string;
+
+    Lexeme(int[] codePoints, int offset, int count) {
+        this.codePoints = codePoints;
+        this.offset = offset;
+        this.count = count;
+        this.chars = null;
+        this.charLength = -1;
+        this.string = null;
+    }
+
+    Lexeme(CharSequence chars, int start, int end) {
+        this.codePoints = null;
+        this.offset = start;
+        this.count = end - start;
+        this.chars = chars;
+        this.charLength = this.count;
+        this.string = null;
+    }
+
+    // true if every code point takes exactly one char
+    private boolean isCharIndexed() {
+        if (this.charLength == -1) {
+            int charLength = 0;
+            for (int i = this.offset; i < this.offset + this.count; i++) {
+                charLength += Character.charCount(this.codePoints[i]);
+            }
+            this.charLength = charLength;
+        }
+        return this.charLength == this.count;
+    }
+
+    /**
+     * @return number of chars (UTF-16 code units) in this lexeme
+     */
+    @Override
+    public int length() {
+        isCharIndexed();
+        return this.charLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (this.chars != null) {
+            return this.chars.charAt(this.offset + index);
+        }
+        if (isCharIndexed()) {
+            return (char) this.codePoints[this.offset + index];
+        }
+        return toString().charAt(index);
+    }
+
+    /**
+     * Also a view, unless this lexeme contains supplementary code points.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length()) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ")");
+        }
+        if (this.chars != null) {
+            return new Lexeme(this.chars, this.offset + start, this.offset + end);
+        }
+        if (isCharIndexed()) {
+            return new Lexeme(this.codePoints, this.offset + start, end - start);
+        }
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * @return number of code points in this lexeme
+     */
+    public int codePointCount() {
+        if (this.chars != null) {
+            return Character.codePointCount(this.chars, this.offset, this.offset + this.count);
+        }
+        return this.count;
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        if (other.length() != length()) {
+            return false;
+        }
+        for (int i = 0; i < other.length(); i++) {
+            if (charAt(i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Lexeme) {
+            return contentEquals((Lexeme) obj);
+        }
+        return false;
+    }
+
+    // computed over chars as String's is, though lexemes are never equal to Strings (see contentEquals())
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < length(); i++) {
+            hashCode = 31 * hashCode + charAt(i);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        if (this.string == null) {
+            if (this.chars != null) {
+                this.string = this.chars.subSequence(this.offset, this.offset + this.count).toString();
+            } else {
+                this.string = new String(this.codePoints, this.offset, this.count);
+            }
+        }
+        return this.string;
+    }
+}
@@ -4,7 +4,7 @@ import io.github.sboyanovich.scannergenerator.automata.DFA;
 import io.github.sboyanovich.scannergenerator.automata.NFA;
 import io.github.sboyanovich.scannergenerator.automata.NFAStateGraphBuilder;
 import io.github.sboyanovich.scannergenerator.automata.StateTag;
-import io.github.sboyanovich.scannergenerator.utility.EquivalenceMap;
+import io.github.sboyanovich.scannergenerator.utility.CodePointClassMap;
 
 import java.io.*;
 import java.util.*;
@@ -31,25 +31,65 @@ import static io.github.sboyanovich.scannergenerator.utility.Utility.isInRange;
  * <p>
  * A lexical recognizer is completely defined by:
  * <p>
- * EquivalenceMap map: (inputAlphabet) => (compressedAlphabet)
+ * CodePointClassMap map: (inputAlphabet) => (compressedAlphabet)
  * <p>
  * int[][] transitionTable: [states][compressedSymbols], dead-end state isn't counted
- * but the transition table can refer to it
+ * but the transition table can refer to it. It's stored in one array of bytes, chars or ints,
+ * whichever is the narrowest to fit all states.
  * <p>
  * List&lt;StateTag&gt; labels: labels assigned to the states (dead-end state is by definition NOT_FINAL.
  * <p>
  * int initialState: marks which state is initial
  * <p>
+ * Recognizers of several modes of a scanner may be combined into one (see combine()), then there is
+ * an initial state per mode, and initialState is that of the first mode.
+ * <p>
  * <p>
  * For the sake of better presentation, dead-end state and edges leading to it are not shown in the diagram.
  */
 public final class LexicalRecognizer {
     public static final int DEAD_END_STATE = -1;
+    public static final int NOT_ACCEPTING = -1;
+
+    // states with more exit symbols aren't worth skipping over in bulk
+    private static final int MAX_EXIT_SYMBOLS = 3;
 
-    private EquivalenceMap generalizedSymbolsMap;
-    private int[][] transitionTable;
+    // widths of transition table entries, in bytes
+    private static final int BYTE_WIDTH = 1;
+    private static final int CHAR_WIDTH = 2;
+    private static final int INT_WIDTH = 4;
+
+    private CodePointClassMap generalizedSymbolsMap;
     private List<StateTag> labels;
     private int initialState;
+    // one per mode, for combined recognizers
+    private int[] initialStates;
+    private int numberOfStates;
+    private int numberOfColumns;
+
+    // Rows of the transition table are padded to a power of two and laid out in one array.
+    // States are represented by offsets of their rows (premultiplied numbers) in the unchecked API.
+    // Only one of the tables is present: byte and char tables hold (state + 1), so that dead-end state is 0,
+    // int table holds offsets themselves.
+    private int width;
+    private byte[] byteTable;
+    private char[] charTable;
+    private int[] flatTable;
+    private int rowShift;
+
+    // state => index of its tag in acceptedTags or NOT_ACCEPTING, so that scanners test for final states
+    // and remember them without touching StateTag objects
+    private int[] accepting;
+    private List<StateTag> acceptedTags;
+
+    // state => code points leading out of it, for states looping on themselves on all others, null otherwise
+    private int[][] exitSymbols;
+
+    // mode => whether its scanners must remember the last final state met, see getBackingUpStates()
+    private boolean[] backingUpModes;
+
+    // mode => code points leading anywhere from its initial state, built when first asked for
+    private CodePointSet[] tokenStartSets;
 
     // as of now, hint maps precisely automaton domain to something smaller
     public LexicalRecognizer(DFA automaton) {
@@ -65,7 +105,7 @@ public final class LexicalRecognizer {
         automaton = automaton.compress(); // Is this compression really necessary? It appears to be so.
         // original alphabet => final
 
-        this.generalizedSymbolsMap = automaton.getTransitionTable().getEquivalenceMap();
+        this.generalizedSymbolsMap = CodePointClassMap.of(automaton.getTransitionTable().getEquivalenceMap());
         //System.out.println(emap.getDomain());
         //System.out.println(emap.getEqClassDomain());
 
@@ -76,6 +116,7 @@ public final class LexicalRecognizer {
         OptionalInt maybeDrain = getDrainState(automaton);
 
         int[][] transitionTable = automaton.getTransitionTable().getTable();
+        int[][] table;
 
         if (maybeDrain.isPresent()) {
             int drain = maybeDrain.getAsInt();
@@ -90,14 +131,14 @@ public final class LexicalRecognizer {
                 }
             };
 
-            this.transitionTable = new int[numberOfStates][alphabetSize];
+            table = new int[numberOfStates][alphabetSize];
             this.initialState = renaming.applyAsInt(automaton.getInitialState());
             for (int j = 0; j < alphabetSize; j++) {
                 for (int i = 0; i < drain; i++) {
-                    this.transitionTable[i][j] = renaming.applyAsInt(transitionTable[i][j]);
+                    table[i][j] = renaming.applyAsInt(transitionTable[i][j]);
                 }
                 for (int i = drain + 1; i < numberOfStates + 1; i++) {
-                    this.transitionTable[i - 1][j] = renaming.applyAsInt(transitionTable[i][j]);
+                    table[i - 1][j] = renaming.applyAsInt(transitionTable[i][j]);
                 }
             }
             this.labels = new ArrayList<>();
@@ -107,12 +148,271 @@ public final class LexicalRecognizer {
             }
         } else {
             this.initialState = automaton.getInitialState();
-            this.transitionTable = transitionTable;
+            table = transitionTable;
             this.labels = new ArrayList<>();
             for (int i = 0; i < numberOfStates; i++) {
                 this.labels.add(automaton.getStateTag(i));
             }
         }
+
+        flatten(table);
+    }
+
+    private LexicalRecognizer(
+            CodePointClassMap generalizedSymbolsMap,
+            int[][] table,
+            List<StateTag> labels,
+            List<StateTag> acceptedTags,
+            int[] initialStates
+    ) {
+        this.generalizedSymbolsMap = generalizedSymbolsMap;
+        this.labels = labels;
+        this.acceptedTags = acceptedTags;
+        this.initialStates = initialStates;
+        this.initialState = initialStates[0];
+
+        flatten(table);
+    }
+
+    /**
+     * Combines recognizers of several modes into one, with states of all modes in one table
+     * and one alphabet partition. Switching modes is then just a matter of starting from another initial state.
+     * <p>
+     * States of mode i come after those of modes 0..i-1. Accept indices of the first mode are preserved,
+     * so are those of others if all recognizers have the same accepted tags (e.g. restored from files
+     * with the same list of tags).
+     *
+     * @param modes recognizers of the same natural alphabet, mode numbers are their indices
+     * @return recognizer, whose initial state for mode i is getInitialState(i)
+     */
+    public static LexicalRecognizer combine(List<LexicalRecognizer> modes) {
+        Objects.requireNonNull(modes);
+        if (modes.isEmpty()) {
+            throw new IllegalArgumentException("At least one mode is required!");
+        }
+        int domain = modes.get(0).generalizedSymbolsMap.getDomain();
+        for (LexicalRecognizer mode : modes) {
+            if (mode.generalizedSymbolsMap.getDomain() != domain) {
+                throw new IllegalArgumentException("All modes must have the same natural alphabet!");
+            }
+        }
+
+        // joint partition: symbols are equivalent iff they are equivalent in every mode
+        int[] jointMap = new int[domain];
+        int jointClasses = 1;
+        for (LexicalRecognizer mode : modes) {
+            Map<Long, Integer> refined = new HashMap<>();
+            long previousKey = -1;
+            int previousClass = 0;
+            for (int symbol = 0; symbol < domain; symbol++) {
+                long key = ((long) jointMap[symbol] << 32) | mode.generalizedSymbolsMap.getEqClass(symbol);
+                // long runs of symbols share classes, so the map is rarely consulted
+                if (key != previousKey) {
+                    previousKey = key;
+                    previousClass = refined.computeIfAbsent(key, k -> refined.size());
+                }
+                jointMap[symbol] = previousClass;
+            }
+            jointClasses = refined.size();
+        }
+        CodePointClassMap jointClassMap = new CodePointClassMap(domain, jointClasses, jointMap);
+
+        // joint class => class of each mode
+        int[] representatives = new int[jointClasses];
+        Arrays.fill(representatives, -1);
+        for (int symbol = 0; symbol < domain; symbol++) {
+            if (representatives[jointMap[symbol]] == -1) {
+                representatives[jointMap[symbol]] = symbol;
+            }
+        }
+
+        int numberOfStates = 0;
+        for (LexicalRecognizer mode : modes) {
+            numberOfStates += mode.numberOfStates;
+        }
+        int[][] table = new int[numberOfStates][jointClasses];
+        List<StateTag> labels = new ArrayList<>();
+        List<StateTag> acceptedTags = new ArrayList<>();
+        int[] initialStates = new int[modes.size()];
+
+        int base = 0;
+        for (int m = 0; m < modes.size(); m++) {
+            LexicalRecognizer mode = modes.get(m);
+            for (int j = 0; j < jointClasses; j++) {
+                int eqClass = mode.generalizedSymbolsMap.getEqClass(representatives[j]);
+                for (int i = 0; i < mode.numberOfStates; i++) {
+                    int to = mode.stateAt(i, eqClass);
+                    table[base + i][j] = (to == DEAD_END_STATE) ? DEAD_END_STATE : base + to;
+                }
+            }
+            labels.addAll(mode.labels);
+            for (StateTag tag : mode.acceptedTags) {
+                if (!acceptedTags.contains(tag)) {
+                    acceptedTags.add(tag);
+                }
+            }
+            initialStates[m] = base + mode.initialState;
+            base += mode.numberOfStates;
+        }
+
+        return new LexicalRecognizer(jointClassMap, table, labels, acceptedTags, initialStates);
+    }
+
+    private static int getWidth(int numberOfStates) {
+        // entries are (state + 1), unsigned
+        if (numberOfStates <= 0xFF) {
+            return BYTE_WIDTH;
+        }
+        if (numberOfStates <= Character.MAX_VALUE) {
+            return CHAR_WIDTH;
+        }
+        return INT_WIDTH;
+    }
+
+    private void flatten(int[][] table) {
+        this.numberOfStates = table.length;
+        this.numberOfColumns = table[0].length;
+        this.width = getWidth(this.numberOfStates);
+
+        this.rowShift = 32 - Integer.numberOfLeadingZeros(Math.max(this.numberOfColumns - 1, 1));
+        int size = this.numberOfStates << this.rowShift;
+        switch (this.width) {
+            case BYTE_WIDTH:
+                this.byteTable = new byte[size];
+                break;
+            case CHAR_WIDTH:
+                this.charTable = new char[size];
+                break;
+            default:
+                this.flatTable = new int[size];
+        }
+        if (this.initialStates == null) {
+            this.initialStates = new int[]{this.initialState};
+        }
+        if (this.acceptedTags == null) {
+            this.acceptedTags = new ArrayList<>(new LinkedHashSet<>(this.labels));
+            this.acceptedTags.remove(StateTag.NOT_FINAL);
+        }
+        this.accepting = new int[this.numberOfStates];
+        for (int i = 0; i < this.numberOfStates; i++) {
+            for (int j = 0; j < this.numberOfColumns; j++) {
+                int index = (i << this.rowShift) + j;
+                int to = table[i][j];
+                switch (this.width) {
+                    case BYTE_WIDTH:
+                        this.byteTable[index] = (byte) (to + 1);
+                        break;
+                    case CHAR_WIDTH:
+                        this.charTable[index] = (char) (to + 1);
+                        break;
+                    default:
+                        this.flatTable[index] = (to == DEAD_END_STATE) ? DEAD_END_STATE : to << this.rowShift;
+                }
+            }
+            StateTag label = this.labels.get(i);
+            this.accepting[i] = StateTag.isFinal(label) ? this.acceptedTags.indexOf(label) : NOT_ACCEPTING;
+        }
+        findExitSymbols(table);
+
+        this.backingUpModes = new boolean[getNumberOfModes()];
+        for (int mode = 0; mode < getNumberOfModes(); mode++) {
+            this.backingUpModes[mode] = !getBackingUpStates(mode).isEmpty();
+        }
+        this.tokenStartSets = new CodePointSet[getNumberOfModes()];
+    }
+
+    // e.g. bodies of comments, which loop on everything but a closing symbol
+    private void findExitSymbols(int[][] table) {
+        // alternative EOI is always found at the end of input, no need to look for it
+        int symbols = Math.min(this.generalizedSymbolsMap.getDomain(), Character.MAX_CODE_POINT + 1);
+        int[] classSizes = new int[this.numberOfColumns];
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            classSizes[this.generalizedSymbolsMap.getEqClass(symbol)]++;
+        }
+
+        this.exitSymbols = new int[this.numberOfStates][];
+        boolean[] exitClasses = new boolean[this.numberOfColumns];
+        for (int i = 0; i < this.numberOfStates; i++) {
+            boolean loops = false;
+            int exits = 0;
+            for (int j = 0; j < this.numberOfColumns; j++) {
+                if (table[i][j] == i) {
+                    loops = true;
+                } else {
+                    exits += classSizes[j];
+                }
+            }
+            if (loops && exits <= MAX_EXIT_SYMBOLS) {
+                this.exitSymbols[i] = new int[exits];
+                for (int j = 0; j < this.numberOfColumns; j++) {
+                    exitClasses[j] |= (table[i][j] != i) && (classSizes[j] > 0);
+                }
+            }
+        }
+
+        // classes of exit symbols are small, so they are collected in one pass
+        int[][] members = new int[this.numberOfColumns][];
+        int[] found = new int[this.numberOfColumns];
+        for (int j = 0; j < this.numberOfColumns; j++) {
+            if (exitClasses[j]) {
+                members[j] = new int[classSizes[j]];
+            }
+        }
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            int eqClass = this.generalizedSymbolsMap.getEqClass(symbol);
+            if (members[eqClass] != null) {
+                members[eqClass][found[eqClass]++] = symbol;
+            }
+        }
+        for (int i = 0; i < this.numberOfStates; i++) {
+            if (this.exitSymbols[i] != null) {
+                int k = 0;
+                for (int j = 0; j < this.numberOfColumns; j++) {
+                    if (table[i][j] != i && members[j] != null) {
+                        for (int symbol : members[j]) {
+                            this.exitSymbols[i][k++] = symbol;
+                        }
+                    }
+                }
+                Arrays.sort(this.exitSymbols[i]);
+            }
+        }
+    }
+
+    // state number (or DEAD_END_STATE) at given index of the table
+    private int stateAt(int index) {
+        switch (this.width) {
+            case BYTE_WIDTH:
+                return (this.byteTable[index] & 0xFF) - 1;
+            case CHAR_WIDTH:
+                return this.charTable[index] - 1;
+            default:
+                // shift is arithmetic, so DEAD_END_STATE stays as is
+                return this.flatTable[index] >> this.rowShift;
+        }
+    }
+
+    private int stateAt(int state, int symbol) {
+        return stateAt((state << this.rowShift) + symbol);
+    }
+
+    // for DirectCodeGenerator
+    int transitionOnClass(int state, int eqClass) {
+        return stateAt(state, eqClass);
+    }
+
+    CodePointClassMap getClassMap() {
+        return this.generalizedSymbolsMap;
+    }
+
+    private int[][] getTable() {
+        int[][] table = new int[this.numberOfStates][this.numberOfColumns];
+        for (int i = 0; i < this.numberOfStates; i++) {
+            for (int j = 0; j < this.numberOfColumns; j++) {
+                table[i][j] = stateAt(i, j);
+            }
+        }
+        return table;
     }
 
     // is called only on dfa known to be minimal
@@ -139,9 +439,11 @@ public final class LexicalRecognizer {
         if (!isInRange(fromState, 0, getNumberOfStates() - 1)) {
             throw new IllegalArgumentException("Invalid fromState number!");
         }
-        // TODO: Add check for code point. Probably define that this class is for Unicode mainly.
+        if (!isInRange(codePoint, 0, this.generalizedSymbolsMap.getDomain() - 1)) {
+            throw new IllegalArgumentException("Invalid code point!");
+        }
         int symbol = this.generalizedSymbolsMap.getEqClass(codePoint);
-        return this.transitionTable[fromState][symbol];
+        return stateAt(fromState, symbol);
     }
 
 
@@ -149,16 +451,34 @@ public final class LexicalRecognizer {
      * @return number of states for this recognizer (not counting dead-end state)
      */
     public int getNumberOfStates() {
-        return this.transitionTable.length;
+        return this.numberOfStates;
     }
 
     /**
-     * @return number of this recognizer's initial state
+     * @return number of this recognizer's initial state (that of the first mode for combined recognizers)
      */
     public int getInitialState() {
         return this.initialState;
     }
 
+    /**
+     * @param mode index of the mode in the list this recognizer was combined from
+     * @return number of the mode's initial state
+     */
+    public int getInitialState(int mode) {
+        if (!isInRange(mode, 0, getNumberOfModes() - 1)) {
+            throw new IllegalArgumentException("Invalid mode number!");
+        }
+        return this.initialStates[mode];
+    }
+
+    /**
+     * @return number of modes, 1 unless this recognizer was combined from several
+     */
+    public int getNumberOfModes() {
+        return this.initialStates.length;
+    }
+
 
     /**
      * @param state state whose tag is to be queried
@@ -175,13 +495,265 @@ public final class LexicalRecognizer {
     }
 
     public int getNumberOfColumns() {
-        return this.transitionTable[0].length;
+        return this.numberOfColumns;
+    }
+
+    /// UNCHECKED API
+    // For scanner inner loops. States are represented by offsets instead of numbers, DEAD_END_STATE stays as is.
+    // Neither states nor symbols are validated, EOI must be handled by caller.
+
+    public int getInitialOffset() {
+        return this.initialState << this.rowShift;
+    }
+
+    public int getInitialOffset(int mode) {
+        return getInitialState(mode) << this.rowShift;
+    }
+
+    /**
+     * @param fromOffset offset of a state other than dead-end one
+     * @param codePoint  symbol of the natural alphabet, not EOI
+     * @return offset of the state to which the transition is to be made or DEAD_END_STATE
+     */
+    public int nextOffset(int fromOffset, int codePoint) {
+        int index = fromOffset + this.generalizedSymbolsMap.getEqClass(codePoint);
+        // width is the same for all calls, so these branches are well predicted
+        if (this.byteTable != null) {
+            return toOffset((this.byteTable[index] & 0xFF) - 1);
+        }
+        if (this.charTable != null) {
+            return toOffset(this.charTable[index] - 1);
+        }
+        return this.flatTable[index];
+    }
+
+    // DEAD_END_STATE is mapped to itself
+    private int toOffset(int state) {
+        return (state << this.rowShift) | (state >> 31);
+    }
+
+    public boolean isFinalOffset(int offset) {
+        return this.accepting[offset >>> this.rowShift] != NOT_ACCEPTING;
+    }
+
+    /**
+     * @return index of the state's tag (see getAcceptedTag()) or NOT_ACCEPTING if the state isn't final
+     */
+    public int getAcceptIndexAtOffset(int offset) {
+        return this.accepting[offset >>> this.rowShift];
+    }
+
+    /**
+     * For recognizers restored from files, accept indices are the same as indices of tags in the list
+     * these were restored with.
+     *
+     * @param acceptIndex index obtained from getAcceptIndexAtOffset()
+     */
+    public StateTag getAcceptedTag(int acceptIndex) {
+        return this.acceptedTags.get(acceptIndex);
+    }
+
+    /**
+     * If the state loops on itself on all code points but a few, scanners may skip to the first of these
+     * (see Text.indexOfAny()) instead of taking transitions one by one.
+     *
+     * @return code points leading out of the state (not to be modified) or null
+     */
+    public int[] getExitSymbolsAtOffset(int offset) {
+        return this.exitSymbols[offset >>> this.rowShift];
+    }
+
+    /**
+     * @return number of the state (as in the checked API) represented by offset
+     */
+    public int getStateAtOffset(int offset) {
+        return offset >>> this.rowShift;
+    }
+
+    public StateTag getStateTagAtOffset(int offset) {
+        return this.labels.get(offset >>> this.rowShift);
+    }
+
+    /**
+     * Error recovery skips input up to a code point that may start a token, this set tells these
+     * without taking transitions.
+     *
+     * @param mode as in getInitialState(int)
+     * @return code points leading from the mode's initial state to states other than dead-end one
+     */
+    public CodePointSet getTokenStartSet(int mode) {
+        int initialState = getInitialState(mode);
+        // sets are immutable, so racing threads may only build the same one twice
+        CodePointSet result = this.tokenStartSets[mode];
+        if (result == null) {
+            boolean[] startClasses = new boolean[this.numberOfColumns];
+            for (int j = 0; j < this.numberOfColumns; j++) {
+                startClasses[j] = stateAt(initialState, j) != DEAD_END_STATE;
+            }
+            List<int[]> ranges = new ArrayList<>();
+            int[] last = null;
+            for (int symbol = 0; symbol < this.generalizedSymbolsMap.getDomain(); symbol++) {
+                if (startClasses[this.generalizedSymbolsMap.getEqClass(symbol)]) {
+                    if (last != null && last[1] == symbol - 1) {
+                        last[1] = symbol;
+                    } else {
+                        last = new int[]{symbol, symbol};
+                        ranges.add(last);
+                    }
+                }
+            }
+            result = new CodePointSet(ranges);
+            this.tokenStartSets[mode] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Backing-up analysis, as in flex -b. Scanning stops at the first symbol leading to dead-end state,
+     * and if it stops in a non-final state after a final one was met, it has to back up to the end of
+     * that match. States where this may happen are backing-up states.
+     * <p>
+     * A mode without them doesn't need to remember the last final state met: the match (if any) ends
+     * where the recognizer stops, in the state it stops in.
+     *
+     * @param mode as in getInitialState(int)
+     * @return numbers of non-final states reachable from the mode's final states, in ascending order
+     */
+    public List<Integer> getBackingUpStates(int mode) {
+        boolean[] reachable = new boolean[this.numberOfStates];
+        Deque<Integer> queue = new ArrayDeque<>();
+        reachable[getInitialState(mode)] = true;
+        queue.add(getInitialState(mode));
+        collectReachable(reachable, queue);
+
+        // states reachable from final ones by at least one transition
+        boolean[] afterFinal = new boolean[this.numberOfStates];
+        for (int state = 0; state < this.numberOfStates; state++) {
+            if (reachable[state] && this.accepting[state] != NOT_ACCEPTING) {
+                for (int j = 0; j < this.numberOfColumns; j++) {
+                    int to = stateAt(state, j);
+                    if (to != DEAD_END_STATE && !afterFinal[to]) {
+                        afterFinal[to] = true;
+                        queue.add(to);
+                    }
+                }
+            }
+        }
+        collectReachable(afterFinal, queue);
+
+        List<Integer> result = new ArrayList<>();
+        for (int state = 0; state < this.numberOfStates; state++) {
+            if (afterFinal[state] && this.accepting[state] == NOT_ACCEPTING) {
+                result.add(state);
+            }
+        }
+        return result;
+    }
+
+    // marks states reachable from those in queue, which are marked already
+    private void collectReachable(boolean[] marked, Deque<Integer> queue) {
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int j = 0; j < this.numberOfColumns; j++) {
+                int to = stateAt(state, j);
+                if (to != DEAD_END_STATE && !marked[to]) {
+                    marked[to] = true;
+                    queue.add(to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the mode has backing-up states (see getBackingUpStates())
+     */
+    public boolean needsBackingUp(int mode) {
+        if (!isInRange(mode, 0, getNumberOfModes() - 1)) {
+            throw new IllegalArgumentException("Invalid mode number!");
+        }
+        return this.backingUpModes[mode];
+    }
+
+    /**
+     * Lists backing-up states of the mode with their transitions, like flex's lex.backup.
+     * Out-transitions lead on to a final state (or fail later), jam-transitions lead to dead-end state,
+     * where scanner has to back up.
+     *
+     * @param alphabetInterpretation names of code points, e.g. Utility::defaultUnicodeInterpretation
+     */
+    public String getBackingUpReport(int mode, Function<Integer, String> alphabetInterpretation) {
+        List<Integer> states = getBackingUpStates(mode);
+        if (states.isEmpty()) {
+            return "No backing up.\n";
+        }
+
+        StringBuilder result = new StringBuilder();
+        int domain = this.generalizedSymbolsMap.getDomain();
+        for (int state : states) {
+            StringBuilder out = new StringBuilder();
+            StringBuilder jam = new StringBuilder("EOI");
+            int first = 0;
+            for (int symbol = 1; symbol <= domain; symbol++) {
+                boolean jams = stateAt(state, this.generalizedSymbolsMap.getEqClass(first)) == DEAD_END_STATE;
+                if (symbol < domain &&
+                        (stateAt(state, this.generalizedSymbolsMap.getEqClass(symbol)) == DEAD_END_STATE) == jams) {
+                    continue;
+                }
+                String range = alphabetInterpretation.apply(first) +
+                        ((symbol - 1 > first) ? "-" + alphabetInterpretation.apply(symbol - 1) : "");
+                StringBuilder transitions = jams ? jam : out;
+                transitions.append((transitions.length() > 0) ? " " : "").append(range);
+                first = symbol;
+            }
+            result.append("State #").append(state).append(" is non-accepting -\n")
+                    .append(" out-transitions: [ ").append(out).append(" ]\n")
+                    .append(" jam-transitions: [ ").append(jam).append(" ]\n")
+                    .append("\n");
+        }
+        result.append(states.size()).append(" non-accepting states require backing up.\n");
+        return result.toString();
+    }
+
+    /**
+     * Builds a recognizer for the same language, reading input as UTF-8 bytes instead of code points.
+     * Its natural alphabet is [0, 256], where 256 stands for the alternative EOI symbol (if this recognizer
+     * has one). Invalid UTF-8 (overlong forms, surrogates, stray continuation bytes) leads to dead-end state.
+     *
+     * @return byte level recognizer, to be used with Utf8Scanner
+     * @throws IllegalStateException if this is a combined recognizer of several modes
+     */
+    public LexicalRecognizer toUtf8() {
+        if (getNumberOfModes() > 1) {
+            throw new IllegalStateException("Byte level recognizers are built for one mode only!");
+        }
+        DFA dfa = new Utf8DfaBuilder(
+                this.generalizedSymbolsMap, getTable(), this.labels, this.initialState
+        ).build();
+        return new LexicalRecognizer(dfa);
+    }
+
+    /**
+     * Compiles this recognizer into a class of its own, where states and transitions are code instead of
+     * tables (see DirectCodeGenerator). Meant for scanners built at runtime, that are used long enough
+     * to make up for compilation time. Requires a JDK at runtime, the compiler of which is used
+     * (see javax.tools.ToolProvider.getSystemJavaCompiler()), a JRE isn't enough.
+     *
+     * @return compiled recognizer, its accept indices are those of this recognizer
+     * @throws IllegalStateException if there is no system Java compiler, or if compilation fails
+     *                               (e.g. the recognizer is too large for a method)
+     */
+    public CompiledRecognizer specialize() {
+        Map<StateTag, Integer> acceptIndices = new HashMap<>();
+        for (int i = 0; i < this.acceptedTags.size(); i++) {
+            acceptIndices.putIfAbsent(this.acceptedTags.get(i), i);
+        }
+        return RecognizerSpecializer.specialize(this, acceptIndices);
     }
 
     private NFA toNFA() {
         Map<Integer, StateTag> labelsMap = new HashMap<>();
-        int numberOfStates = this.transitionTable.length;
-        int alphabetSize = this.transitionTable[0].length;
+        int numberOfStates = this.numberOfStates;
+        int alphabetSize = this.numberOfColumns;
 
         for (int i = 0; i < numberOfStates; i++) {
             labelsMap.put(i, this.labels.get(i));
@@ -192,7 +764,7 @@ public final class LexicalRecognizer {
 
         for (int i = 0; i < numberOfStates; i++) {
             for (int j = 0; j < alphabetSize; j++) {
-                int state = this.transitionTable[i][j];
+                int state = stateAt(i, j);
                 if (state != DEAD_END_STATE) {
                     edges.addSymbolToEdge(i, state, j);
                 }
@@ -229,14 +801,14 @@ public final class LexicalRecognizer {
     }
 
     public String displayEquivalenceMap(Function<Integer, String> alphabetInterpretation) {
-        return generalizedSymbolsMap.displayClasses(alphabetInterpretation);
+        return generalizedSymbolsMap.toEquivalenceMap().displayClasses(alphabetInterpretation);
     }
 
     /// EXPERIMENTAL
     public void writeToFile(String filename, Map<StateTag, Integer> indices) {
         int domain = this.generalizedSymbolsMap.getDomain();
         int eqcDomain = this.generalizedSymbolsMap.getEqClassDomain();
-        int numberOfStates = this.transitionTable.length;
+        int numberOfStates = this.numberOfStates;
 
         try (DataOutputStream dos = new DataOutputStream(
                 new BufferedOutputStream(new FileOutputStream(ensurePathExists(filename))))
@@ -246,11 +818,26 @@ public final class LexicalRecognizer {
             for (int i = 0; i < domain; i++) {
                 dos.writeInt(this.generalizedSymbolsMap.getEqClass(i));
             }
-            dos.writeInt(this.initialState);
+            dos.writeInt(this.initialStates.length);
+            for (int initialState : this.initialStates) {
+                dos.writeInt(initialState);
+            }
             dos.writeInt(numberOfStates);
-            for (int[] row : this.transitionTable) {
+            // table entries are written as (state + 1) in the narrowest width that fits
+            dos.writeByte(this.width);
+            for (int i = 0; i < numberOfStates; i++) {
                 for (int j = 0; j < eqcDomain; j++) {
-                    dos.writeInt(row[j]);
+                    int entry = stateAt(i, j) + 1;
+                    switch (this.width) {
+                        case BYTE_WIDTH:
+                            dos.writeByte(entry);
+                            break;
+                        case CHAR_WIDTH:
+                            dos.writeChar(entry);
+                            break;
+                        default:
+                            dos.writeInt(entry);
+                    }
                 }
             }
             for (int i = 0; i < numberOfStates; i++) {
@@ -266,6 +853,43 @@ public final class LexicalRecognizer {
         }
     }
 
+    private static int[] readInitialStates(DataInputStream dis) throws IOException {
+        int numberOfModes = dis.readInt();
+        if (numberOfModes < 1) {
+            throw new IOException("Invalid number of modes: " + numberOfModes);
+        }
+        int[] initialStates = new int[numberOfModes];
+        for (int i = 0; i < numberOfModes; i++) {
+            initialStates[i] = dis.readInt();
+        }
+        return initialStates;
+    }
+
+    private static int[][] readTable(DataInputStream dis, int numberOfStates, int eqcDomain) throws IOException {
+        int width = dis.readByte();
+        if (width != BYTE_WIDTH && width != CHAR_WIDTH && width != INT_WIDTH) {
+            throw new IOException("Invalid transition table width: " + width);
+        }
+        int[][] table = new int[numberOfStates][eqcDomain];
+        for (int i = 0; i < numberOfStates; i++) {
+            for (int j = 0; j < eqcDomain; j++) {
+                int entry;
+                switch (width) {
+                    case BYTE_WIDTH:
+                        entry = dis.readUnsignedByte();
+                        break;
+                    case CHAR_WIDTH:
+                        entry = dis.readChar();
+                        break;
+                    default:
+                        entry = dis.readInt();
+                }
+                table[i][j] = entry - 1;
+            }
+        }
+        return table;
+    }
+
     // CALL ONLY ON GENERATED FILES
     public LexicalRecognizer(InputStream is, List<StateTag> finalTags) {
         try (DataInputStream dis = new DataInputStream(
@@ -279,23 +903,19 @@ public final class LexicalRecognizer {
                 map[i] = dis.readInt();
             }
 
-            this.generalizedSymbolsMap = new EquivalenceMap(domain, eqcDomain, map);
+            this.generalizedSymbolsMap = new CodePointClassMap(domain, eqcDomain, map);
 
-            this.initialState = dis.readInt();
+            this.initialStates = readInitialStates(dis);
+            this.initialState = this.initialStates[0];
             int numberOfStates = dis.readInt();
 
-            this.transitionTable = new int[numberOfStates][eqcDomain];
-
-            for (int i = 0; i < numberOfStates; i++) {
-                for (int j = 0; j < eqcDomain; j++) {
-                    this.transitionTable[i][j] = dis.readInt();
-                }
-            }
+            int[][] table = readTable(dis, numberOfStates, eqcDomain);
 
             this.labels = new ArrayList<>();
             for (int i = 0; i < numberOfStates; i++) {
                 this.labels.add(StateTag.NOT_FINAL);
             }
+            this.acceptedTags = new ArrayList<>(finalTags);
 
             while (dis.available() > 0) {
                 int state = dis.readInt();
@@ -303,6 +923,7 @@ public final class LexicalRecognizer {
                 this.labels.set(state, finalTags.get(index));
             }
 
+            flatten(table);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -320,23 +941,19 @@ public final class LexicalRecognizer {
                 map[i] = dis.readInt();
             }
 
-            this.generalizedSymbolsMap = new EquivalenceMap(domain, eqcDomain, map);
+            this.generalizedSymbolsMap = new CodePointClassMap(domain, eqcDomain, map);
 
-            this.initialState = dis.readInt();
+            this.initialStates = readInitialStates(dis);
+            this.initialState = this.initialStates[0];
             int numberOfStates = dis.readInt();
 
-            this.transitionTable = new int[numberOfStates][eqcDomain];
-
-            for (int i = 0; i < numberOfStates; i++) {
-                for (int j = 0; j < eqcDomain; j++) {
-                    this.transitionTable[i][j] = dis.readInt();
-                }
-            }
+            int[][] table = readTable(dis, numberOfStates, eqcDomain);
 
             this.labels = new ArrayList<>();
             for (int i = 0; i < numberOfStates; i++) {
                 this.labels.add(StateTag.NOT_FINAL);
             }
+            this.acceptedTags = new ArrayList<>(finalTags);
 
             while (dis.available() > 0) {
                 int state = dis.readInt();
@@ -344,6 +961,7 @@ public final class LexicalRecognizer {
                 this.labels.set(state, finalTags.get(index));
             }
 
+            flatten(table);
         } catch (IOException e) {
             e.printStackTrace();
         }
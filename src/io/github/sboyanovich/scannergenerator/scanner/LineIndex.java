@@ -0,0 +1,67 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.util.Arrays;
+
+/**
+ * Indices at which lines of a text start, in ascending order. Lets positions be resolved to line and column
+ * by binary search, so scanners only have to track indices.
+ * <p>
+ * Streamed texts drop starts of lines before their window (see release()), only counting them.
+ */
+final class LineIndex {
+    private int[] lineStarts;
+    private int numberOfLines;
+    // number of lines before lineStarts[0]
+    private int releasedLines;
+
+    LineIndex() {
+        this.lineStarts = new int[16];
+        this.lineStarts[0] = 0;
+        this.numberOfLines = 1;
+        this.releasedLines = 0;
+    }
+
+    /**
+     * @param lineStart index following a line break, greater than all added before
+     */
+    void add(int lineStart) {
+        if (this.numberOfLines == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, 2 * this.numberOfLines);
+        }
+        this.lineStarts[this.numberOfLines] = lineStart;
+        this.numberOfLines++;
+    }
+
+    private int find(int index) {
+        int found = Arrays.binarySearch(this.lineStarts, 0, this.numberOfLines, index);
+        // not found => -(insertion point) - 1, line is the one before insertion point
+        return (found >= 0) ? found : -found - 2;
+    }
+
+    /**
+     * Forgets starts of lines before the one containing index, lines of indices before it can't be looked up.
+     */
+    void release(int index) {
+        int kept = find(index);
+        if (kept > 0) {
+            this.numberOfLines -= kept;
+            System.arraycopy(this.lineStarts, kept, this.lineStarts, 0, this.numberOfLines);
+            this.releasedLines += kept;
+        }
+    }
+
+    /**
+     * @return number of the line (starting from 1) containing index
+     */
+    int lineAt(int index) {
+        int found = find(index);
+        if (found < 0) {
+            throw new IllegalStateException("Line of index " + index + " has been released!");
+        }
+        return this.releasedLines + found + 1;
+    }
+
+    int lineStart(int line) {
+        return this.lineStarts[line - 1 - this.releasedLines];
+    }
+}
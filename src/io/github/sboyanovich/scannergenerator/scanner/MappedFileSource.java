@@ -0,0 +1,64 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes a memory-mapped file on demand. Files larger than one mapping allows are mapped region by region,
+ * each new region starts exactly where decoding of the previous one stopped.
+ */
+final class MappedFileSource extends CharBufferSource {
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private FileChannel channel; // null once the last region has been mapped
+    private final long fileSize;
+    private long regionStart;
+    private MappedByteBuffer region;
+
+    private final CharsetDecoder decoder;
+
+    MappedFileSource(Path path, Charset charset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = this.channel.size();
+        this.regionStart = 0;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        mapRegion();
+    }
+
+    private void mapRegion() throws IOException {
+        long regionSize = Math.min(MAX_REGION_SIZE, this.fileSize - this.regionStart);
+        this.region = this.channel.map(FileChannel.MapMode.READ_ONLY, this.regionStart, regionSize);
+        if (this.regionStart + regionSize == this.fileSize) {
+            // mapping stays valid after the channel is closed
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    @Override
+    boolean fill(CharBuffer chars) throws IOException {
+        boolean lastRegion = (this.channel == null);
+        this.decoder.decode(this.region, chars, lastRegion);
+        // errors are replaced, so only underflow and overflow are possible here
+        if (this.region.remaining() < 4 && chars.hasRemaining()) {
+            // what's left (if anything) is an incomplete sequence
+            if (lastRegion) {
+                this.decoder.decode(this.region, chars, true);
+                this.decoder.flush(chars);
+                return false;
+            }
+            this.regionStart += this.region.position();
+            mapRegion();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Memo of states known not to lead to a final state from given index on, for maximal munch in linear time
+ * (T. Reps, "Maximal-munch" tokenization in linear time, 1998).
+ * <p>
+ * After a match, scanners go back to the end of it and scan the same input again, which takes quadratic time
+ * on inputs like aaa...a with rules a | a*b. Every (state, index) pair visited past the last final state of
+ * a match fails, so these are remembered and later matches end as soon as they reach one of them.
+ * No pair is then visited more than twice, whatever the recognizer.
+ * <p>
+ * Scanners start every match with startMatch(), report each state they reach with visit() and call endMatch()
+ * if something matched. Indices are expected to grow, pairs before the start of the current match are forgotten.
+ */
+public final class MaximalMunchMemo {
+    // failed pairs are only dropped when the start of matches has moved this far, so that it's done rarely
+    private static final int COMPACTION_THRESHOLD = 1 << 16;
+    private static final int INITIAL_TRAIL_LENGTH = 1 << 8;
+
+    private final LexicalRecognizer recognizer;
+
+    // state => indices (minus base) at which it fails, allocated when first needed
+    private final BitSet[] failed;
+    private int base;
+
+    // states of the current match, trail[i] is the one at index start + i
+    private int start;
+    private int[] trail;
+    private int length;
+
+    public MaximalMunchMemo(LexicalRecognizer recognizer) {
+        this.recognizer = recognizer;
+        this.failed = new BitSet[recognizer.getNumberOfStates()];
+        this.base = 0;
+        this.start = 0;
+        this.trail = new int[INITIAL_TRAIL_LENGTH];
+        this.length = 0;
+    }
+
+    public void startMatch(int index) {
+        int dropped = index - this.base;
+        if (dropped >= COMPACTION_THRESHOLD) {
+            for (int state = 0; state < this.failed.length; state++) {
+                BitSet indices = this.failed[state];
+                if (indices != null) {
+                    this.failed[state] = indices.get(dropped, Math.max(dropped, indices.length()));
+                }
+            }
+            this.base = index;
+        }
+        this.start = index;
+        this.length = 0;
+    }
+
+    /**
+     * Visits of one match must be made at consecutive indices, from the one given to startMatch() on.
+     *
+     * @param offset state, as in the unchecked API of LexicalRecognizer
+     * @return false if the state is known to fail at index, then the match may be ended
+     */
+    public boolean visit(int offset, int index) {
+        int state = this.recognizer.getStateAtOffset(offset);
+        int i = index - this.start;
+        if (i == this.trail.length) {
+            this.trail = Arrays.copyOf(this.trail, 2 * this.trail.length);
+        }
+        this.trail[i] = state;
+        this.length = i + 1;
+
+        BitSet indices = this.failed[state];
+        return (indices == null) || !indices.get(index - this.base);
+    }
+
+    /**
+     * Remembers all pairs visited past the end of the match as failed.
+     *
+     * @param matchEnd index following the match
+     */
+    public void endMatch(int matchEnd) {
+        for (int i = matchEnd - this.start + 1; i < this.length; i++) {
+            int state = this.trail[i];
+            if (this.failed[state] == null) {
+                this.failed[state] = new BitSet();
+            }
+            this.failed[state].set(this.start + i - this.base);
+        }
+    }
+}
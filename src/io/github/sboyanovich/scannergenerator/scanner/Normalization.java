@@ -0,0 +1,21 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+/**
+ * Policy of bringing Text input to Unicode Normalization Form C.
+ */
+public enum Normalization {
+    /**
+     * Input is taken as it is.
+     */
+    OFF,
+    /**
+     * Input is verified with a fast scan and only normalized if verification fails.
+     * Streamed input is verified (and normalized, if needed) chunk by chunk, as with STREAMING.
+     */
+    QUICK_CHECK,
+    /**
+     * Input is normalized chunk by chunk, as scanning advances. Strings are held in memory already,
+     * so for them this is the same as QUICK_CHECK.
+     */
+    STREAMING
+}
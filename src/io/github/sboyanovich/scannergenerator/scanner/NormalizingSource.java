@@ -0,0 +1,120 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+import java.text.Normalizer;
+
+/**
+ * Brings code points supplied by another source to NFC, chunk by chunk.
+ * <p>
+ * Code points below U+0300 never combine with preceding ones and are themselves in NFC, so input can be
+ * cut right before any of them and both parts can be normalized independently. Chunks consisting
+ * of such code points only (e.g. ASCII or Latin-1 text) are passed through without calling Normalizer.
+ */
+final class NormalizingSource implements CodePointSource {
+    private static final int SAFE_BOUNDARY = 0x300;
+    private static final int CHUNK_SIZE = 1 << 13;
+
+    private final CodePointSource source;
+    private boolean exhausted;
+
+    // code points read from source, not normalized yet
+    private int[] pending;
+    private int pendingLength;
+
+    // normalized code points, not handed out yet
+    private int[] ready;
+    private int readyStart;
+    private int readyLength;
+
+    NormalizingSource(CodePointSource source) {
+        this.source = source;
+        this.exhausted = false;
+        this.pending = new int[CHUNK_SIZE];
+        this.pendingLength = 0;
+        this.ready = new int[CHUNK_SIZE];
+        this.readyStart = 0;
+        this.readyLength = 0;
+    }
+
+    @Override
+    public int read(int[] buffer, int offset, int length) throws IOException {
+        while (this.readyStart == this.readyLength) {
+            if (this.exhausted && this.pendingLength == 0) {
+                return -1;
+            }
+            if (!this.exhausted) {
+                readMore();
+            }
+            int boundary = this.exhausted ? this.pendingLength : lastSafeBoundary();
+            if (boundary > 0) {
+                normalize(boundary);
+            }
+        }
+        int read = Math.min(length, this.readyLength - this.readyStart);
+        System.arraycopy(this.ready, this.readyStart, buffer, offset, read);
+        this.readyStart += read;
+        return read;
+    }
+
+    private void readMore() throws IOException {
+        if (this.pending.length - this.pendingLength < CHUNK_SIZE) {
+            int[] grown = new int[2 * this.pending.length];
+            System.arraycopy(this.pending, 0, grown, 0, this.pendingLength);
+            this.pending = grown;
+        }
+        int read = this.source.read(this.pending, this.pendingLength, CHUNK_SIZE);
+        if (read == -1) {
+            this.exhausted = true;
+        } else {
+            this.pendingLength += read;
+        }
+    }
+
+    // 0 if there's no place to cut pending input yet
+    private int lastSafeBoundary() {
+        for (int i = this.pendingLength - 1; i > 0; i--) {
+            if (this.pending[i] < SAFE_BOUNDARY) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private void normalize(int boundary) {
+        boolean inert = true;
+        for (int i = 0; i < boundary && inert; i++) {
+            inert = this.pending[i] < SAFE_BOUNDARY;
+        }
+
+        if (inert) {
+            ensureReadyCapacity(boundary);
+            System.arraycopy(this.pending, 0, this.ready, 0, boundary);
+            this.readyLength = boundary;
+        } else {
+            String chunk = new String(this.pending, 0, boundary);
+            if (!Normalizer.isNormalized(chunk, Normalizer.Form.NFC)) {
+                chunk = Normalizer.normalize(chunk, Normalizer.Form.NFC);
+            }
+            ensureReadyCapacity(chunk.length());
+            int i = 0;
+            int j = 0;
+            while (i < chunk.length()) {
+                int codePoint = chunk.codePointAt(i);
+                this.ready[j] = codePoint;
+                i += Character.charCount(codePoint);
+                j++;
+            }
+            this.readyLength = j;
+        }
+        this.readyStart = 0;
+
+        this.pendingLength -= boundary;
+        System.arraycopy(this.pending, boundary, this.pending, 0, this.pendingLength);
+    }
+
+    private void ensureReadyCapacity(int capacity) {
+        if (this.ready.length < capacity) {
+            this.ready = new int[Math.max(capacity, 2 * this.ready.length)];
+        }
+    }
+}
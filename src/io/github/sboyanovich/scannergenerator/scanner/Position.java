@@ -1,29 +1,52 @@
 package io.github.sboyanovich.scannergenerator.scanner;
 
+/**
+ * Positions obtained from Text.positionAt() only know their index at first (unless text is streamed).
+ * Line and column are looked up in text's line index when asked for.
+ */
 public class Position implements Comparable<Position> {
     private int line;
     private int pos;
     private int index;
 
+    // null once line and pos are known
+    private Text text;
+
     public Position(int line, int pos, int index) {
         this.line = line;
         this.pos = pos;
         this.index = index;
+        this.text = null;
+    }
+
+    Position(Text text, int index) {
+        this.index = index;
+        this.text = text;
     }
 
     public Position(Position position) {
-        this(position.line, position.pos, position.index);
+        this(position.getLine(), position.getPos(), position.index);
     }
 
     public Position() {
         this(1, 1, 0);
     }
 
+    private void resolve() {
+        if (this.text != null) {
+            this.line = this.text.lineAt(this.index);
+            this.pos = this.text.columnAt(this.index, this.line);
+            this.text = null;
+        }
+    }
+
     public int getLine() {
+        resolve();
         return line;
     }
 
     public int getPos() {
+        resolve();
         return pos;
     }
 
@@ -33,9 +56,9 @@ public class Position implements Comparable<Position> {
 
     private String toString(boolean verbose) {
         if (verbose) {
-            return "(Line: " + this.line + ", Pos: " + this.pos + ", Index: " + this.index + ")";
+            return "(Line: " + getLine() + ", Pos: " + getPos() + ", Index: " + this.index + ")";
         } else {
-            return "(" + this.line + ", " + this.pos + ")";
+            return "(" + getLine() + ", " + getPos() + ")";
         }
     }
 
@@ -60,8 +83,8 @@ public class Position implements Comparable<Position> {
 
     @Override
     public int hashCode() {
-        int hashCode = this.line;
-        hashCode = 31 * hashCode + this.pos;
+        int hashCode = getLine();
+        hashCode = 31 * hashCode + getPos();
         hashCode = 31 * hashCode + this.index;
         return hashCode;
     }
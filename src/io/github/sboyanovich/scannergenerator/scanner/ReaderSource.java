@@ -0,0 +1,21 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Pulls chars from a Reader. Reader is not closed by this class.
+ */
+final class ReaderSource extends CharBufferSource {
+    private final Reader reader;
+
+    ReaderSource(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    boolean fill(CharBuffer chars) throws IOException {
+        return this.reader.read(chars) != -1;
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles direct coded recognizers in memory with the system Java compiler, so it needs to run on a JDK
+ * (ToolProvider.getSystemJavaCompiler() is null on a JRE).
+ * <p>
+ * Every class is defined by a class loader of its own, so that it's unloaded once the recognizer
+ * is no longer used.
+ */
+final class RecognizerSpecializer {
+    private static final String CLASS_NAME_PREFIX = "SpecializedRecognizer";
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static final class SpecializedClassLoader extends ClassLoader {
+        SpecializedClassLoader() {
+            super(CompiledRecognizer.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    static CompiledRecognizer specialize(LexicalRecognizer recognizer, Map<StateTag, Integer> acceptIndices) {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IllegalStateException("No system Java compiler, specialization requires a JDK!");
+        }
+
+        String className = CLASS_NAME_PREFIX + counter.incrementAndGet();
+        String source = DirectCodeGenerator.generateRecognizerClass(recognizer, className, acceptIndices);
+
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + className + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE
+        ) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        Map<String, ByteArrayOutputStream> classFiles = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                javac.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)
+        ) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(
+                    Location location, String name, JavaFileObject.Kind kind, FileObject sibling
+            ) {
+                return new SimpleJavaFileObject(URI.create("memory:///" + name + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+                        classFiles.put(name, classFile);
+                        return classFile;
+                    }
+                };
+            }
+        };
+
+        // classes of this library are found on the class path of the running application
+        boolean compiled = javac.getTask(
+                null, fileManager, diagnostics, List.of("-g:none"), null, List.of(sourceFile)
+        ).call();
+        if (!compiled || !classFiles.containsKey(className)) {
+            throw new IllegalStateException("Specialized recognizer failed to compile: " + diagnostics.getDiagnostics());
+        }
+
+        byte[] bytes = classFiles.get(className).toByteArray();
+        try {
+            Class<?> specialized = new SpecializedClassLoader().define(className, bytes);
+            return (CompiledRecognizer) specialized.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Specialized recognizer failed to load!", e);
+        }
+    }
+}
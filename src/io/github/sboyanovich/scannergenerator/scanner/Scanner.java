@@ -5,129 +5,482 @@ import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
 import io.github.sboyanovich.scannergenerator.scanner.token.Token;
 import io.github.sboyanovich.scannergenerator.utility.Utility;
 
-import java.util.OptionalInt;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class Scanner {
-    private static final int NEWLINE = Utility.asCodePoint("\n");
-    private static final int CARRET = Utility.asCodePoint("\r");
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int INITIAL_CAPACITY = 1 << 10;
 
     private Text program;
 
     private Compiler compiler;
 
-    private Position currPos;
+    // line and column are only resolved for positions of token bounds, when asked for
+    private int currIndex;
+    private int tokenStart;
+    // where the last ERROR token's match failed, reported by callers of scan()
+    private int errorIndex;
     private LexicalRecognizer recognizer;
+    // used instead of interpreting the recognizer's table, if present
+    private CompiledRecognizer compiled;
+    // scanning takes linear time if present, see MaximalMunchMemo
+    private MaximalMunchMemo memo;
+    // see LexicalRecognizer.getBackingUpStates()
+    private boolean backingUp;
+    // error recovery skips to these
+    private CodePointSet tokenStarts;
 
-    Scanner(String program, Compiler compiler, LexicalRecognizer recognizer) {
-        this.program = new Text(program);
+    Scanner(Text program, Compiler compiler, LexicalRecognizer recognizer) {
+        this(program, compiler, recognizer, null, null);
+    }
+
+    Scanner(
+            Text program, Compiler compiler, LexicalRecognizer recognizer,
+            CompiledRecognizer compiled, MaximalMunchMemo memo
+    ) {
+        this.program = program;
         this.compiler = compiler;
         this.recognizer = recognizer;
-        this.currPos = new Position();
+        this.compiled = compiled;
+        this.memo = memo;
+        this.backingUp = recognizer.needsBackingUp(0);
+        this.tokenStarts = recognizer.getTokenStartSet(0);
+        this.currIndex = 0;
+        this.tokenStart = 0;
     }
 
     public String getProgram() {
         return program.toString();
     }
 
-    private void advanceCurrentPosition() {
-        int index = this.currPos.getIndex();
-        int codePoint = this.program.codePointAt(index);
-        int nextCodePoint = this.program.codePointAt(index + 1);
+    private String getTextFragment(Fragment span) {
+        return Utility.getTextFragmentAsString(this.program, span);
+    }
+
+    private int getCurrentCodePoint() {
+        return this.program.codePointAt(this.currIndex);
+    }
+
+    // states are offsets of LexicalRecognizer's unchecked API
+    private int nextState(int currState, int codePoint) {
+        if (codePoint == Text.EOI) {
+            return LexicalRecognizer.DEAD_END_STATE;
+        }
+        return this.recognizer.nextOffset(currState, codePoint);
+    }
 
-        if (codePoint != Text.EOI) {
-            int line = this.currPos.getLine();
-            // CARRET not followed by NEWLINE will also count as line break
-            if ((codePoint == NEWLINE) || ((codePoint == CARRET) && (nextCodePoint != NEWLINE))) {
-                this.currPos = new Position(line + 1, 1, index + 1);
-            } else {
-                int pos = this.currPos.getPos();
-                this.currPos = new Position(line, pos + 1, index + 1);
+    // interpreted counterpart of CompiledRecognizer.match()
+    private long match(int start) {
+        int currState = this.recognizer.getInitialOffset();
+        int index = start;
+
+        // Save accept index of last final state encountered
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = start; // will be used only if lastAccept is present
+
+        while (true) {
+            int currCodePoint = this.program.codePointAt(index);
+            int nextState = nextState(currState, currCodePoint);
+
+            int accept = this.recognizer.getAcceptIndexAtOffset(currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = index;
+            }
+
+            if (nextState == LexicalRecognizer.DEAD_END_STATE) {
+                break;
             }
+            index++;
+            if (nextState == currState) {
+                int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(currState);
+                if (exitSymbols != null) {
+                    // the state is only left on these
+                    index = this.program.indexOfAny(index, exitSymbols);
+                }
+            }
+            currState = nextState;
         }
+
+        int position = (lastAccept == LexicalRecognizer.NOT_ACCEPTING) ? index : lastInFinal;
+        return CompiledRecognizer.pack(position, lastAccept);
     }
 
-    private String getTextFragment(Fragment span) {
-        return Utility.getTextFragmentAsString(this.program, span);
+    // match() for recognizers without backing-up states, the match (if any) ends where the recognizer stops
+    private long matchWithoutBackingUp(int start) {
+        int currState = this.recognizer.getInitialOffset();
+        int index = start;
+
+        while (true) {
+            int nextState = nextState(currState, this.program.codePointAt(index));
+            if (nextState == LexicalRecognizer.DEAD_END_STATE) {
+                break;
+            }
+            index++;
+            if (nextState == currState) {
+                int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(currState);
+                if (exitSymbols != null) {
+                    // the state is only left on these
+                    index = this.program.indexOfAny(index, exitSymbols);
+                }
+            }
+            currState = nextState;
+        }
+
+        return CompiledRecognizer.pack(index, this.recognizer.getAcceptIndexAtOffset(currState));
     }
 
-    private int getCurrentCodePoint() {
-        int cp = this.currPos.getIndex();
-        return this.program.codePointAt(cp);
+    // match() that remembers failed states, input isn't skipped over in bulk since skipped states can't be
+    private long matchInLinearTime(int start) {
+        MaximalMunchMemo memo = this.memo;
+        memo.startMatch(start);
+        int currState = this.recognizer.getInitialOffset();
+        int index = start;
+
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = start;
+
+        while (true) {
+            int accept = this.recognizer.getAcceptIndexAtOffset(currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = index;
+            }
+
+            // Until something matched, scanning goes on to dead-end state, as usual. Error recovery
+            // starts from there, so that input isn't scanned again anyway.
+            if (!memo.visit(currState, index) && lastAccept != LexicalRecognizer.NOT_ACCEPTING) {
+                break;
+            }
+            int nextState = nextState(currState, this.program.codePointAt(index));
+            if (nextState == LexicalRecognizer.DEAD_END_STATE) {
+                break;
+            }
+            index++;
+            currState = nextState;
+        }
+
+        if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
+            return CompiledRecognizer.pack(index, lastAccept);
+        }
+        memo.endMatch(lastInFinal);
+        return CompiledRecognizer.pack(lastInFinal, lastAccept);
     }
 
     /**
-     * assumed EOI not reached yet
+     * Scans the next token, leaving its bounds in tokenStart and currIndex.
+     *
+     * @return accept index of the token's final state, TokenBuffer.ERROR or TokenBuffer.END_OF_INPUT
      */
-    private boolean atPotentialTokenStart() {
-        int currCodePoint = getCurrentCodePoint();
-        int nextState = this.recognizer.transition(this.recognizer.getInitialState(), currCodePoint);
-        return nextState != LexicalRecognizer.DEAD_END_STATE;
+    private int scan() {
+        int start = this.currIndex;
+        this.tokenStart = start;
+        if (getCurrentCodePoint() == Text.EOI) {
+            return TokenBuffer.END_OF_INPUT;
+        }
+
+        long match;
+        if (this.memo != null) {
+            match = matchInLinearTime(start);
+        } else if (this.compiled != null) {
+            match = this.compiled.match(this.program, start);
+        } else if (!this.backingUp) {
+            match = matchWithoutBackingUp(start);
+        } else {
+            match = match(start);
+        }
+        int lastAccept = CompiledRecognizer.getAcceptIndex(match);
+        this.currIndex = CompiledRecognizer.getPosition(match);
+
+        if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
+            this.errorIndex = this.currIndex;
+
+            // recovery
+            // symbol we've stumbled upon might be the beginning of a new token, the rest is skipped in bulk
+            this.currIndex = this.program.indexOfAny(this.currIndex, this.tokenStarts);
+            return TokenBuffer.ERROR;
+        }
+        return lastAccept;
     }
 
-    private boolean isFinal(int currState) {
-        return StateTag.isFinal(this.recognizer.getStateTag(currState));
+    private void reportError(int index) {
+        this.compiler.addError(this.program.positionAt(index), "Unexpected symbol encountered.");
+    }
+
+    private Token createToken(int kind, int start, int follow) {
+        switch (kind) {
+            case TokenBuffer.END_OF_INPUT:
+                return Domain.END_OF_INPUT.createToken(this.program, start, follow);
+            case TokenBuffer.ERROR:
+                return Domain.ERROR.createToken(this.program, start, follow);
+        }
+
+        // last final state corresponds to some meaningful Domain
+        StateTag tag = this.recognizer.getAcceptedTag(kind);
+
+        if (tag instanceof DomainTag) {
+            DomainTag domainTag = (DomainTag) tag;
+            return domainTag.getDomain().createToken(this.program, start, follow);
+        } else {
+            // FOR NOW, THIS CHECK SHOULD PROBABLY BE PERFORMED WHEN BUILDING A RECOGNIZER/SCANNER
+            throw new RuntimeException("Only DomainTag StateTags allowed as final states in a scanner!");
+        }
     }
 
     public Token nextToken() {
-        if (getCurrentCodePoint() == Text.EOI) {
-            return Domain.END_OF_INPUT.createToken(this.program, new Fragment(currPos, currPos));
+        // streamed input is only retained from the current token's start onward
+        this.program.release(this.currIndex);
+        int kind = scan();
+        if (kind == TokenBuffer.ERROR) {
+            reportError(this.errorIndex);
         }
+        return createToken(kind, this.tokenStart, this.currIndex);
+    }
+
+    /**
+     * Scans tokens into buffer until it's full or end of input is added, without creating any objects.
+     * Tokens of the batch may be created with getToken() until the next batch is scanned, streamed input
+     * is retained for that long. Buffer's kinds are accept indices of the recognizer, modes are 0.
+     *
+     * @return number of tokens added
+     */
+    public int tokenizeInto(TokenBuffer buffer) {
+        this.program.release(this.currIndex);
+        int added = 0;
+        while (!buffer.isFull()) {
+            int kind = scan();
+            if (kind == TokenBuffer.ERROR) {
+                reportError(this.errorIndex);
+            }
+            buffer.add(kind, this.tokenStart, this.currIndex, 0);
+            added++;
+            if (kind == TokenBuffer.END_OF_INPUT) {
+                break;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @param i index of a token scanned by tokenizeInto() into buffer
+     */
+    public Token getToken(TokenBuffer buffer, int i) {
+        return createToken(buffer.getKind(i), buffer.getStartingIndex(i), buffer.getFollowingIndex(i));
+    }
 
-        int currState = this.recognizer.getInitialState();
+    /**
+     * Scans tokens into buffer until it's full or end of input is added, as tokenizeInto() does, with threads
+     * of the pool, reporting errors in the same order.
+     * <p>
+     * Input is split into chunks, each is scanned speculatively from its start, as if a token started there.
+     * Scanning from a position doesn't depend on anything before it, so once the sequential scan reaches
+     * a token start of a speculative one, the rest of that chunk is known. Otherwise (e.g. the chunk starts
+     * in the middle of a long comment) the chunk is rescanned until they meet. Only a few chunks are scanned
+     * ahead, those left when the buffer is full are scanned in vain, so it should hold many chunks' worth.
+     * <p>
+     * Streamed input is decoded by the calling thread, tasks scan copies of their chunks.
+     *
+     * @param chunkSize code points per chunk, tokens should usually be much shorter
+     * @return number of tokens added
+     */
+    public int tokenizeInParallel(ForkJoinPool pool, int chunkSize, TokenBuffer buffer) {
+        this.program.release(this.currIndex);
+        return tokenizeInParallel(pool, chunkSize, buffer, false);
+    }
 
-        Position start = currPos;
+    /**
+     * Scans the rest of input as nextToken() would, with threads of the pool, into a buffer of its own
+     * (see tokenizeInParallel(ForkJoinPool, int, TokenBuffer)). Streamed input is retained from the first token
+     * on, so that tokens may be created with getToken().
+     *
+     * @return buffer holding tokens up to END_OF_INPUT
+     */
+    public TokenBuffer tokenizeInParallel(ForkJoinPool pool, int chunkSize) {
+        TokenBuffer buffer = new TokenBuffer(INITIAL_CAPACITY);
+        tokenizeInParallel(pool, chunkSize, buffer, true);
+        return buffer;
+    }
 
-        // Save last final state encountered
-        OptionalInt lastFinalState = OptionalInt.empty();
-        Position lastInFinal = new Position(); // will be used only if lastFinalState is present
+    public TokenBuffer tokenizeInParallel(ForkJoinPool pool) {
+        return tokenizeInParallel(pool, DEFAULT_CHUNK_SIZE);
+    }
 
-        while (true) {
-            int currCodePoint = getCurrentCodePoint();
-            int nextState = this.recognizer.transition(currState, currCodePoint);
+    private int tokenizeInParallel(ForkJoinPool pool, int chunkSize, TokenBuffer buffer, boolean growing) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        int initialSize = buffer.size();
+        // speculative scans are ahead of the sequential one by this many chunks at most
+        int ahead = pool.getParallelism() + 1;
+        Deque<ForkJoinTask<Chunk>> tasks = new ArrayDeque<>();
+        // chunks already merged, their arrays are reused
+        List<Chunk> merged = new ArrayList<>();
+
+        long nextChunk = this.currIndex;
+        int position = this.currIndex;
+        boolean ended = false;
+        while (!ended && (growing || !buffer.isFull())) {
+            while (tasks.size() < ahead && nextChunk < Integer.MAX_VALUE
+                    && this.program.codePointAt((int) nextChunk) != Text.EOI) {
+                Chunk chunk = merged.isEmpty() ? new Chunk() : merged.remove(merged.size() - 1);
+                chunk.reset((int) nextChunk, (int) Math.min(nextChunk + chunkSize, Integer.MAX_VALUE));
+                tasks.add(pool.submit(speculate(chunk)));
+                nextChunk = chunk.limit;
+            }
 
-            if (isFinal(currState)) {
-                lastFinalState = OptionalInt.of(currState);
-                lastInFinal = this.currPos;
+            // with no chunks left, the sequential scan goes on to END_OF_INPUT
+            Chunk chunk = tasks.isEmpty() ? null : tasks.poll().join();
+            int limit = (chunk != null) ? chunk.limit : Integer.MAX_VALUE;
+            // a token of the previous chunk may cover this one
+            while (!ended && position < limit && (growing || !buffer.isFull())) {
+                int first = (chunk != null) ? chunk.indexOfStart(position) : -1;
+                if (first >= 0) {
+                    int next = merge(chunk, first, buffer, growing);
+                    ended = (buffer.getKind(buffer.size() - 1) == TokenBuffer.END_OF_INPUT);
+                    position = (next < chunk.size) ? chunk.starts[next] : chunk.end;
+                    if (next < chunk.size) {
+                        break;
+                    }
+                    continue;
+                }
+                // speculation is of no use yet
+                this.currIndex = position;
+                int kind = scan();
+                if (kind == TokenBuffer.ERROR) {
+                    reportError(this.errorIndex);
+                }
+                if (growing) {
+                    buffer.ensureCapacity(buffer.size() + 1);
+                }
+                buffer.add(kind, this.tokenStart, this.currIndex, 0);
+                ended = (kind == TokenBuffer.END_OF_INPUT);
+                position = this.currIndex;
             }
+            if (chunk != null) {
+                merged.add(chunk);
+            }
+        }
+        // chunks past a full buffer are dropped, their tasks only read input
+        this.currIndex = position;
+        return buffer.size() - initialSize;
+    }
 
-            if (nextState != LexicalRecognizer.DEAD_END_STATE) {
-                currState = nextState;
-                advanceCurrentPosition();
-            } else {
-                // it's time to stop
+    private ForkJoinTask<Chunk> speculate(Chunk chunk) {
+        // tasks never read streamed input, it's decoded by this thread meanwhile
+        Text text = this.program.isStreamed()
+                ? this.program.copyForScanning(chunk.start, chunk.limit)
+                : this.program;
+        Scanner worker = new Scanner(
+                text, this.compiler, this.recognizer, this.compiled,
+                (this.memo != null) ? new MaximalMunchMemo(this.recognizer) : null
+        );
+        worker.currIndex = chunk.start;
+        return ForkJoinTask.adapt(() -> worker.scanChunk(chunk));
+    }
 
-                if (!isFinal(currState) && !lastFinalState.isPresent()) {
-                    this.compiler.addError(this.currPos, "Unexpected symbol encountered.");
+    // scans tokens from currIndex, as long as they start before chunk's limit, without reporting errors
+    private Chunk scanChunk(Chunk chunk) {
+        try {
+            while (this.currIndex < chunk.limit) {
+                int kind = scan();
+                chunk.add(kind, this.tokenStart, this.currIndex, this.errorIndex);
+                if (kind == TokenBuffer.END_OF_INPUT) {
+                    break;
+                }
+            }
+            chunk.end = this.currIndex;
+        } catch (Text.CopyEndException e) {
+            // the token goes on past the copy of input, it's left to the sequential scan
+            chunk.end = this.tokenStart;
+        }
+        return chunk;
+    }
 
-                    // recovery
-                    // symbol we've stumbled upon might be the beginning of a new token
+    /**
+     * Adds tokens of chunk from first on to buffer, while there's room, reporting errors as nextToken() would.
+     *
+     * @return index of the first token that wasn't added
+     */
+    private int merge(Chunk chunk, int first, TokenBuffer buffer, boolean growing) {
+        int to = chunk.size;
+        if (growing) {
+            buffer.ensureCapacity(buffer.size() + to - first);
+        } else {
+            to = Math.min(to, first + buffer.capacity() - buffer.size());
+        }
+        int error = 0;
+        for (int i = 0; i < to; i++) {
+            if (chunk.kinds[i] == TokenBuffer.ERROR) {
+                if (i >= first) {
+                    reportError(chunk.errors[error]);
+                }
+                error++;
+            }
+        }
+        buffer.addAll(chunk.kinds, chunk.starts, chunk.follows, first, to);
+        return to;
+    }
 
-                    while ((getCurrentCodePoint() != Text.EOI) && !atPotentialTokenStart()) {
-                        advanceCurrentPosition();
-                    }
-                    Fragment invalidFragment = new Fragment(start, this.currPos);
-                    return Domain.ERROR.createToken(this.program, invalidFragment);
-                } else {
-                    if (lastFinalState.isPresent()) {
-                        this.currPos = lastInFinal;
-                        currState = lastFinalState.getAsInt();
-                    }
-                    // now currState is certainly final => corresponds to some meaningful Domain
+    // tokens scanned from start as in TokenBuffer, arrays grow as needed and are kept for later chunks
+    private static final class Chunk {
+        private int start;
+        private int limit;
+        private int size;
+        private int[] kinds;
+        private int[] starts;
+        private int[] follows;
+        // for ERROR tokens, in order, indices where errors were found
+        private int numberOfErrors;
+        private int[] errors;
+        // where the next token would start
+        private int end;
 
-                    Fragment scannedFragment = new Fragment(start, this.currPos);
+        Chunk() {
+            this.kinds = new int[INITIAL_CAPACITY];
+            this.starts = new int[INITIAL_CAPACITY];
+            this.follows = new int[INITIAL_CAPACITY];
+            this.errors = new int[INITIAL_CAPACITY];
+        }
 
-                    StateTag tag = this.recognizer.getStateTag(currState);
+        // tokens starting before limit belong to the chunk
+        void reset(int start, int limit) {
+            this.start = start;
+            this.limit = limit;
+            this.size = 0;
+            this.numberOfErrors = 0;
+            this.end = start;
+        }
 
-                    if (tag instanceof DomainTag) {
-                        DomainTag domainTag = (DomainTag) tag;
-                        return domainTag.getDomain().createToken(this.program, scannedFragment);
-                    } else {
-                        // FOR NOW, THIS CHECK SHOULD PROBABLY BE PERFORMED WHEN BUILDING A RECOGNIZER/SCANNER
-                        throw new RuntimeException("Only DomainTag StateTags allowed as final states in a scanner!");
-                    }
+        void add(int kind, int start, int follow, int error) {
+            if (this.size == this.kinds.length) {
+                int capacity = 2 * this.size;
+                this.kinds = Arrays.copyOf(this.kinds, capacity);
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.follows = Arrays.copyOf(this.follows, capacity);
+            }
+            this.kinds[this.size] = kind;
+            this.starts[this.size] = start;
+            this.follows[this.size] = follow;
+            this.size++;
+            if (kind == TokenBuffer.ERROR) {
+                if (this.numberOfErrors == this.errors.length) {
+                    this.errors = Arrays.copyOf(this.errors, 2 * this.numberOfErrors);
                 }
+                this.errors[this.numberOfErrors] = error;
+                this.numberOfErrors++;
             }
         }
+
+        // token starts are increasing
+        int indexOfStart(int start) {
+            int found = Arrays.binarySearch(this.starts, 0, this.size, start);
+            return (found >= 0) ? found : -1;
+        }
     }
 }
-
@@ -1,69 +1,587 @@
 package io.github.sboyanovich.scannergenerator.scanner;
 
-import io.github.sboyanovich.scannergenerator.utility.Utility;
-
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.text.Normalizer;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.Objects;
 
-// UTF32 text
+/**
+ * UTF32 text.
+ * <p>
+ * Texts built from strings are held in memory completely. Texts built from files, readers or channels are decoded
+ * lazily and only keep a sliding window of input: everything before the index passed to release() may be forgotten.
+ * Scanners release input at the start of every token, so memory is bounded by the longest token. Line index
+ * of such texts only keeps starts of lines from the released index on, so positions are resolved as soon as
+ * they are made: positions of released input can't be obtained.
+ * <p>
+ * Whether input is brought to NFC is controlled by Normalization policy. Strings are checked by default,
+ * streamed input is taken as it is unless requested otherwise.
+ * <p>
+ * Texts of Utf16Scanners read their input in place (see TextInput), indices are char offsets then.
+ */
 public class Text {
     public static final int EOI = -1;
 
-    private List<Integer> codePoints;
+    private static final int DEFAULT_ALT_EOI = Character.MAX_CODE_POINT + 1;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 13;
+    private static final int[] NO_CODE_POINTS = new int[0];
+
+    // source of copies made by copyForScanning() that end before input does, nothing is read from it
+    private static final CodePointSource PAST_COPY = (buffer, offset, length) -> {
+        throw new CopyEndException();
+    };
+
+    // Code point with index i is stored at codePoints[i + shift].
+    // Unless text is windowed, code points are shared between a text and all of its subtexts. Only the part
+    // past length is ever written to, and reallocation leaves older arrays untouched.
+    private int[] codePoints;
+    private int shift;
+    private int length;
+    private final int altEoi;
+
+    private final boolean windowed;
+    private int firstRetained;
+
+    // null for texts that are completely decoded
+    private CodePointSource source;
+
+    // line breaks before indexedUpTo are in line index
+    // streamed input is indexed before it's released and the index is trimmed along with the window,
+    // other texts are indexed when positions are resolved
+    private final LineIndex lineIndex;
+    private int indexedUpTo;
+
+    // input read in place, codePoints are empty and length stays 0 then; null for texts of code points
+    private final TextInput input;
 
-    private Text(List<Integer> codePoints, int maxCodePoint) {
-        this.codePoints = new ArrayList<>(codePoints);
-        this.codePoints.add(maxCodePoint + 1);
+    private Text(int[] codePoints, int shift, int length, int altEoi) {
+        this.codePoints = codePoints;
+        this.shift = shift;
+        this.length = length;
+        this.altEoi = altEoi;
+        this.windowed = false;
+        this.firstRetained = 0;
+        this.source = null;
+        this.lineIndex = new LineIndex();
+        this.indexedUpTo = 0;
+        this.input = null;
     }
 
-    private Text(List<Integer> codePoints) {
-        this(codePoints, Character.MAX_CODE_POINT);
+    // for input read in place, no code points are kept
+    Text(TextInput input) {
+        this.codePoints = NO_CODE_POINTS;
+        this.shift = 0;
+        this.length = 0;
+        this.altEoi = DEFAULT_ALT_EOI;
+        this.windowed = false;
+        this.firstRetained = 0;
+        this.source = null;
+        this.lineIndex = new LineIndex();
+        this.indexedUpTo = 0;
+        this.input = input;
     }
 
     public Text(String text) {
-        this(Normalizer.normalize(text, Normalizer.Form.NFC)
-                .codePoints()
-                .boxed()
-                .collect(Collectors.toList())
-        );
+        this(text, Normalization.QUICK_CHECK);
+    }
+
+    public Text(String text, Normalization normalization) {
+        this(toCodePoints(normalize(text, normalization)));
+    }
+
+    private Text(int[] codePoints) {
+        this(codePoints, 0, codePoints.length, DEFAULT_ALT_EOI);
+    }
+
+    private Text(CodePointSource source) {
+        this.codePoints = new int[INITIAL_CAPACITY];
+        this.shift = 0;
+        this.length = 0;
+        this.altEoi = DEFAULT_ALT_EOI;
+        this.windowed = true;
+        this.firstRetained = 0;
+        this.source = source;
+        this.lineIndex = new LineIndex();
+        this.indexedUpTo = 0;
+        this.input = null;
+    }
+
+    /**
+     * Maps file into memory and decodes it lazily, as code points are requested. Whole text is never
+     * materialized as a String. Unlike Text(String), no normalization is performed by default and line endings
+     * are left as they are in the file.
+     */
+    public static Text fromFile(String filename, Charset charset) throws IOException {
+        return fromFile(filename, charset, Normalization.OFF);
+    }
+
+    public static Text fromFile(String filename, Charset charset, Normalization normalization) throws IOException {
+        return new Text(normalizing(new MappedFileSource(Paths.get(filename), charset), normalization));
+    }
+
+    public static Text fromFile(String filename) throws IOException {
+        return fromFile(filename, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams input from reader, which is neither buffered nor closed by the text.
+     * No normalization is performed by default, as with fromFile().
+     */
+    public static Text fromReader(Reader reader) {
+        return fromReader(reader, Normalization.OFF);
+    }
+
+    public static Text fromReader(Reader reader, Normalization normalization) {
+        return new Text(normalizing(new ReaderSource(reader), normalization));
+    }
+
+    /**
+     * Streams input from a blocking channel, which is not closed by the text.
+     * No normalization is performed by default, as with fromFile().
+     */
+    public static Text fromChannel(ReadableByteChannel channel, Charset charset) {
+        return fromChannel(channel, charset, Normalization.OFF);
+    }
+
+    public static Text fromChannel(ReadableByteChannel channel, Charset charset, Normalization normalization) {
+        return new Text(normalizing(new ChannelSource(channel, charset), normalization));
+    }
+
+    private static String normalize(String text, Normalization normalization) {
+        Objects.requireNonNull(normalization);
+        // already normalized text is only scanned, no copy is made
+        if (normalization == Normalization.OFF || Normalizer.isNormalized(text, Normalizer.Form.NFC)) {
+            return text;
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFC);
+    }
+
+    private static CodePointSource normalizing(CodePointSource source, Normalization normalization) {
+        Objects.requireNonNull(normalization);
+        return (normalization == Normalization.OFF) ? source : new NormalizingSource(source);
+    }
+
+    // avoids boxing and stream machinery, string is traversed twice but only one array is allocated
+    private static int[] toCodePoints(String text) {
+        int[] result = new int[text.codePointCount(0, text.length())];
+        int i = 0;
+        int j = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            result[j] = codePoint;
+            i += Character.charCount(codePoint);
+            j++;
+        }
+        return result;
+    }
+
+    // makes room for at least CHUNK_SIZE more code points
+    private void ensureRoom() {
+        int used = this.length + this.shift;
+        if (this.codePoints.length - used >= CHUNK_SIZE) {
+            return;
+        }
+        int from = this.windowed ? this.firstRetained + this.shift : 0;
+        int retained = used - from;
+        int capacity = this.codePoints.length;
+        // growing when more than half of the buffer would still be occupied, sliding otherwise
+        if (retained + CHUNK_SIZE > capacity / 2) {
+            capacity = Math.max(2 * capacity, retained + CHUNK_SIZE);
+        }
+        int[] target = (capacity == this.codePoints.length) ? this.codePoints : new int[capacity];
+        System.arraycopy(this.codePoints, from, target, 0, retained);
+        this.codePoints = target;
+        this.shift -= from;
+    }
+
+    private void decodeMore() {
+        if (this.source == PAST_COPY) {
+            throw new CopyEndException();
+        }
+        ensureRoom();
+        int read;
+        try {
+            read = this.source.read(this.codePoints, this.length + this.shift, CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (read == -1) {
+            this.source = null;
+        } else {
+            this.length += read;
+        }
+    }
+
+    private void decodeUpTo(int index) {
+        while (this.source != null && index >= this.length) {
+            decodeMore();
+        }
+    }
+
+    // index of alternative EOI, as far as input is decoded
+    private int inputLength() {
+        return (this.input != null) ? this.input.length() : this.length;
+    }
+
+    /**
+     * @return true if input before index passed to release() may be forgotten
+     */
+    public boolean isStreamed() {
+        return this.windowed;
+    }
+
+    /**
+     * Lets this text forget input before index. Released input can't be accessed anymore.
+     * Has no effect on texts that aren't streamed.
+     */
+    public void release(int index) {
+        if (this.windowed && index > this.firstRetained) {
+            decodeUpTo(index - 1);
+            indexLines(index);
+            this.firstRetained = Math.min(index, this.length);
+            this.lineIndex.release(this.firstRetained);
+        }
+    }
+
+    // CARRET not followed by NEWLINE also counts as line break, as in scanners
+    private void indexLines(int upTo) {
+        // one code point past upTo is needed to tell CR LF from lone CR
+        decodeUpTo(upTo);
+        int end = Math.min(upTo, inputLength());
+        for (int i = this.indexedUpTo; i < end; i++) {
+            int codePoint = codePointAt(i);
+            if ((codePoint == '\n') || ((codePoint == '\r') && (codePointAt(i + 1) != '\n'))) {
+                this.lineIndex.add(i + 1);
+            }
+        }
+        this.indexedUpTo = Math.max(this.indexedUpTo, end);
+    }
+
+    /**
+     * Line and column of resulting position are computed only when asked for, unless this text is streamed.
+     *
+     * @throws IllegalStateException if text is streamed and index has been released
+     */
+    public Position positionAt(int index) {
+        if (this.windowed) {
+            checkRetained(index);
+            int line = lineAt(index);
+            return new Position(line, columnAt(index, line), index);
+        }
+        return new Position(this, index);
+    }
+
+    // line numbers and columns start from 1
+    int lineAt(int index) {
+        if (index > this.indexedUpTo) {
+            indexLines(index);
+        }
+        return this.lineIndex.lineAt(index);
+    }
+
+    int columnAt(int index, int line) {
+        int lineStart = this.lineIndex.lineStart(line);
+        if (this.input != null) {
+            // columns count code points, not indices of input
+            int end = Math.min(index, this.input.length());
+            return this.input.codePointCount(lineStart, end) + (index - end) + 1;
+        }
+        return index - lineStart + 1;
     }
 
     public int getAltEoi() {
-        return this.codePoints.get(this.codePoints.size() - 1);
+        return this.altEoi;
     }
 
+    /**
+     * For lazily decoded texts, decodes the rest of input.
+     *
+     * @return number of code points in this text, alternative EOI symbol at the end included
+     */
     public int size() {
-        return this.codePoints.size();
+        decodeUpTo(Integer.MAX_VALUE);
+        return inputLength() + 1;
     }
 
     public int codePointAt(int index) {
-        if (index < this.codePoints.size()) {
-            return this.codePoints.get(index);
+        if (index < this.length) {
+            return this.codePoints[index + this.shift];
+        }
+        if (this.source != null) {
+            decodeUpTo(index);
+            return codePointAt(index);
+        }
+        if (this.input != null && index < this.input.length()) {
+            return this.input.codePointAt(index);
+        }
+        if (index == inputLength()) {
+            return this.altEoi;
         }
         return EOI;
     }
 
+    /**
+     * Looks for the first of given code points from index onward, so that scanners may skip over input in bulk
+     * rather than code point by code point.
+     *
+     * @return index of the first code point found, or index of alternative EOI if there is none
+     * (index itself if it's past that)
+     */
+    public int indexOfAny(int index, int[] symbols) {
+        if (this.input != null) {
+            int end = this.input.length();
+            for (int i = index; i < end; i++) {
+                int codePoint = this.input.codePointAt(i);
+                for (int symbol : symbols) {
+                    if (codePoint == symbol) {
+                        return i;
+                    }
+                }
+            }
+            return Math.max(index, end);
+        }
+        while (true) {
+            int end = this.length + this.shift;
+            int found = indexOfAny(this.codePoints, index + this.shift, end, symbols);
+            if (found < end) {
+                return found - this.shift;
+            }
+            if (this.source == null) {
+                // loops taken on alternative EOI go on to EOI, never back
+                return Math.max(index, this.length);
+            }
+            // continuing from the end of decoded input, by index, since decoding may move code points
+            index = Math.max(index, this.length);
+            decodeMore();
+        }
+    }
+
+    /**
+     * Like indexOfAny(int, int[]), for larger sets of symbols (e.g. those that may start a token).
+     * Alternative EOI symbol is looked for like any other.
+     *
+     * @return index of the first code point found, or index of EOI if there is none
+     */
+    public int indexOfAny(int index, CodePointSet symbols) {
+        if (this.input != null) {
+            int end = this.input.length();
+            for (int i = index; i < end; i++) {
+                if (symbols.contains(this.input.codePointAt(i))) {
+                    return i;
+                }
+            }
+            if (index <= end && symbols.contains(this.altEoi)) {
+                return end;
+            }
+            return Math.max(index, end + 1);
+        }
+        while (true) {
+            int end = this.length + this.shift;
+            int[] codePoints = this.codePoints;
+            int found = index + this.shift;
+            while (found < end && !symbols.contains(codePoints[found])) {
+                found++;
+            }
+            if (found < end) {
+                return found - this.shift;
+            }
+            if (this.source == null) {
+                if (index <= this.length && symbols.contains(this.altEoi)) {
+                    return this.length;
+                }
+                return Math.max(index, this.length + 1);
+            }
+            index = Math.max(index, this.length);
+            decodeMore();
+        }
+    }
+
+    // loops are unrolled by hand for the usual numbers of symbols
+    private static int indexOfAny(int[] codePoints, int from, int to, int[] symbols) {
+        switch (symbols.length) {
+            case 0:
+                return to;
+            case 1: {
+                int a = symbols[0];
+                for (int i = from; i < to; i++) {
+                    if (codePoints[i] == a) {
+                        return i;
+                    }
+                }
+                return to;
+            }
+            case 2: {
+                int a = symbols[0];
+                int b = symbols[1];
+                for (int i = from; i < to; i++) {
+                    int codePoint = codePoints[i];
+                    if (codePoint == a || codePoint == b) {
+                        return i;
+                    }
+                }
+                return to;
+            }
+            default:
+                for (int i = from; i < to; i++) {
+                    int codePoint = codePoints[i];
+                    for (int symbol : symbols) {
+                        if (codePoint == symbol) {
+                            return i;
+                        }
+                    }
+                }
+                return to;
+        }
+    }
+
+    private void checkRetained(int index) {
+        if (index < this.firstRetained) {
+            throw new IllegalStateException("Input before index " + this.firstRetained + " has been released!");
+        }
+    }
+
+    /**
+     * Resulting text is a view of this one, unless this text is streamed. Then exactly one copy is made.
+     */
     public Text subtext(int start, int follow) {
+        if (this.input != null) {
+            int end = Math.min(follow, this.input.length());
+            Objects.checkFromToIndex(start, end, this.input.length());
+            return new Text(this.input.subInput(start, end));
+        }
+        decodeUpTo(follow - 1);
         int end = follow;
-        int size = this.codePoints.size();
         // ensuring there's only one EOF in sequence
-        if (size - 1 < end) {
-            end = size - 1;
+        if (this.length < end) {
+            end = this.length;
+        }
+        Objects.checkFromToIndex(start, end, this.length);
+        checkRetained(start);
+        if (this.windowed) {
+            int[] copy = Arrays.copyOfRange(this.codePoints, start + this.shift, end + this.shift);
+            return new Text(copy, 0, copy.length, this.altEoi);
         }
-        return new Text(this.codePoints.subList(start, end), getAltEoi());
+        return new Text(this.codePoints, start + this.shift, end - start, this.altEoi);
     }
 
-    @Override
-    public String toString() {
-        StringBuilder result = new StringBuilder();
+    /**
+     * Copy of input in [start, follow), with the same indices, that may be read on another thread while this
+     * text goes on decoding. Reading past the copy throws CopyEndException, unless input ends there.
+     * Input read in place is never decoded, texts of it are returned as they are.
+     */
+    Text copyForScanning(int start, int follow) {
+        if (this.input != null) {
+            return this;
+        }
+        decodeUpTo(follow);
+        int end = Math.min(follow, this.length);
+        Objects.checkFromToIndex(start, end, this.length);
+        checkRetained(start);
+        int[] copy = Arrays.copyOfRange(this.codePoints, start + this.shift, end + this.shift);
+        Text result = new Text(copy, -start, end, this.altEoi);
+        if (end < this.length) {
+            result.source = PAST_COPY;
+        }
+        return result;
+    }
+
+    /**
+     * Unlike subtext(), never creates a Text. Lexemes of texts that aren't streamed share their code points.
+     */
+    public Lexeme lexeme(int start, int follow) {
+        if (this.input != null) {
+            int end = Math.min(follow, this.input.length());
+            Objects.checkFromToIndex(start, end, this.input.length());
+            return this.input.lexeme(start, end);
+        }
+        decodeUpTo(follow - 1);
+        int end = Math.min(follow, this.length);
+        Objects.checkFromToIndex(start, end, this.length);
+        checkRetained(start);
+        if (this.windowed) {
+            int[] copy = Arrays.copyOfRange(this.codePoints, start + this.shift, end + this.shift);
+            return new Lexeme(copy, 0, copy.length);
+        }
+        return new Lexeme(this.codePoints, start + this.shift, end - start);
+    }
 
-        for (int i = 0; i < this.codePoints.size() - 1; i++) {
-            int codePoint = this.codePoints.get(i);
-            result.append(Utility.asString(codePoint));
+    /**
+     * Bounded search, unlike indexOfAny(). Meant for looking into tokens.
+     *
+     * @return index of the first occurrence of code point in [start, follow), or -1 if there is none
+     */
+    public int indexOf(int codePoint, int start, int follow) {
+        checkRetained(start);
+        for (int i = start; i < follow; i++) {
+            if (codePointAt(i) == codePoint) {
+                return i;
+            }
         }
+        return -1;
+    }
+
+    /**
+     * Parses code points in [start, follow) as a signed integer in given radix, the way Integer.parseInt() does,
+     * but without making a String.
+     *
+     * @throws NumberFormatException if they don't make an int
+     */
+    public int parseInt(int start, int follow, int radix) {
+        if (start >= follow) {
+            throw new NumberFormatException("No digits at " + start + "!");
+        }
+        checkRetained(start);
+        int i = start;
+        boolean negative = false;
+        int first = codePointAt(i);
+        if (first == '-' || first == '+') {
+            negative = (first == '-');
+            i++;
+            if (i == follow) {
+                throw new NumberFormatException("No digits after sign at " + start + "!");
+            }
+        }
+        // accumulating negatively, since the range of negative ints is the larger one
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multiplicationLimit = limit / radix;
+        int result = 0;
+        for (; i < follow; i++) {
+            int digit = Character.digit(codePointAt(i), radix);
+            if (digit < 0 || result < multiplicationLimit) {
+                throw new NumberFormatException("Not an int at " + start + "-" + follow + "!");
+            }
+            result *= radix;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Not an int at " + start + "-" + follow + "!");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    // signal to scanners of copies, no stack trace is taken
+    static final class CopyEndException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
 
-        return result.toString();
+        CopyEndException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (this.input != null) {
+            return this.input.toString();
+        }
+        checkRetained(0);
+        decodeUpTo(Integer.MAX_VALUE);
+        return new String(this.codePoints, this.shift, this.length);
     }
 }
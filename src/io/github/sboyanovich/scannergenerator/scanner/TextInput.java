@@ -0,0 +1,27 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+/**
+ * Input that a Text reads in place instead of keeping code points of its own (see CharSequenceText).
+ * Indices are those of the input (e.g. char offsets) and need not be consecutive code points.
+ * Text takes care of EOI, line index and positions.
+ */
+interface TextInput {
+    /**
+     * @return index right past the input, where alternative EOI is
+     */
+    int length();
+
+    /**
+     * @param index in [0, length())
+     */
+    int codePointAt(int index);
+
+    /**
+     * @return number of code points in [start, end), columns count these
+     */
+    int codePointCount(int start, int end);
+
+    TextInput subInput(int start, int end);
+
+    Lexeme lexeme(int start, int end);
+}
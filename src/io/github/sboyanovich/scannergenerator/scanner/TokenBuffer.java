@@ -0,0 +1,131 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.scanner.token.Token;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Batch of scanned tokens, kept as kinds, spans and modes in parallel arrays, so that scanners may fill it
+ * without creating Token, Fragment or Position objects (see Scanner.tokenizeInto()).
+ * Buffers are meant to be reused, clear() keeps the arrays.
+ * <p>
+ * Kinds are accept indices of final states (see LexicalRecognizer.getAcceptIndexAtOffset()),
+ * ERROR or END_OF_INPUT. Spans are indices in the scanned text, as in Fragment.
+ */
+public final class TokenBuffer {
+    public static final int ERROR = -1;
+    public static final int END_OF_INPUT = -2;
+
+    private int[] kinds;
+    private int[] startingIndices;
+    private int[] followingIndices;
+    private int[] modes;
+    // tokens that exist anyway (e.g. made by actions of generated scanners), allocated when first needed
+    private Token[] tokens;
+    private int size;
+
+    public TokenBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        this.kinds = new int[capacity];
+        this.startingIndices = new int[capacity];
+        this.followingIndices = new int[capacity];
+        this.modes = new int[capacity];
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int capacity() {
+        return this.kinds.length;
+    }
+
+    public boolean isFull() {
+        return this.size == this.kinds.length;
+    }
+
+    public void clear() {
+        if (this.tokens != null) {
+            Arrays.fill(this.tokens, 0, this.size, null);
+        }
+        this.size = 0;
+    }
+
+    public void add(int kind, int startingIndex, int followingIndex, int mode) {
+        if (isFull()) {
+            throw new IllegalStateException("Token buffer is full!");
+        }
+        this.kinds[this.size] = kind;
+        this.startingIndices[this.size] = startingIndex;
+        this.followingIndices[this.size] = followingIndex;
+        this.modes[this.size] = mode;
+        this.size++;
+    }
+
+    // grows the arrays, for buffers filled by scanners that don't stop when they're full
+    void ensureCapacity(int capacity) {
+        if (capacity > capacity()) {
+            int newCapacity = Math.max(capacity, 2 * capacity());
+            this.kinds = Arrays.copyOf(this.kinds, newCapacity);
+            this.startingIndices = Arrays.copyOf(this.startingIndices, newCapacity);
+            this.followingIndices = Arrays.copyOf(this.followingIndices, newCapacity);
+            this.modes = Arrays.copyOf(this.modes, newCapacity);
+            if (this.tokens != null) {
+                this.tokens = Arrays.copyOf(this.tokens, newCapacity);
+            }
+        }
+    }
+
+    // tokens [from, to) of the arrays, scanned in mode 0
+    void addAll(int[] kinds, int[] startingIndices, int[] followingIndices, int from, int to) {
+        int count = to - from;
+        if (count > capacity() - this.size) {
+            throw new IllegalStateException("Token buffer is full!");
+        }
+        System.arraycopy(kinds, from, this.kinds, this.size, count);
+        System.arraycopy(startingIndices, from, this.startingIndices, this.size, count);
+        System.arraycopy(followingIndices, from, this.followingIndices, this.size, count);
+        Arrays.fill(this.modes, this.size, this.size + count, 0);
+        this.size += count;
+    }
+
+    /**
+     * Adds a token that has already been created, so that it's returned by getToken() as it is.
+     */
+    public void add(Token token, int kind, int mode) {
+        Fragment coords = token.getCoords();
+        add(kind, coords.getStartingIndex(), coords.getFollowingIndex(), mode);
+        if (this.tokens == null) {
+            this.tokens = new Token[capacity()];
+        }
+        this.tokens[this.size - 1] = token;
+    }
+
+    public int getKind(int i) {
+        return this.kinds[Objects.checkIndex(i, this.size)];
+    }
+
+    public int getStartingIndex(int i) {
+        return this.startingIndices[Objects.checkIndex(i, this.size)];
+    }
+
+    public int getFollowingIndex(int i) {
+        return this.followingIndices[Objects.checkIndex(i, this.size)];
+    }
+
+    public int getMode(int i) {
+        return this.modes[Objects.checkIndex(i, this.size)];
+    }
+
+    /**
+     * @return token added with add(Token, int, int) or null
+     */
+    public Token getToken(int i) {
+        Objects.checkIndex(i, this.size);
+        return (this.tokens == null) ? null : this.tokens[i];
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
+import io.github.sboyanovich.scannergenerator.scanner.token.Token;
+
+/**
+ * Works like Scanner, but walks UTF-16 input directly, without building a code point array.
+ * Surrogate pairs are combined only where they occur.
+ * <p>
+ * Indices of token positions are char offsets, while positions within lines count code points,
+ * as with Scanner. Input is not normalized.
+ */
+public class Utf16Scanner {
+    private final CharSequence program;
+    private final int length;
+    private final Text text;
+
+    private Compiler compiler;
+    private LexicalRecognizer recognizer;
+
+    // Position objects are only created for token bounds
+    private int index;
+
+    Utf16Scanner(CharSequence program, Compiler compiler, LexicalRecognizer recognizer) {
+        this.program = program;
+        this.length = program.length();
+        this.text = new Text(new CharSequenceText(program));
+        this.compiler = compiler;
+        this.recognizer = recognizer;
+        this.index = 0;
+    }
+
+    public String getProgram() {
+        return this.program.toString();
+    }
+
+    private int codePointAt(int index) {
+        if (index < this.length) {
+            char c = this.program.charAt(index);
+            if (Character.isHighSurrogate(c) && index + 1 < this.length) {
+                char next = this.program.charAt(index + 1);
+                if (Character.isLowSurrogate(next)) {
+                    return Character.toCodePoint(c, next);
+                }
+            }
+            return c;
+        }
+        if (index == this.length) {
+            return this.text.getAltEoi();
+        }
+        return Text.EOI;
+    }
+
+    private void advanceCurrentPosition(int codePoint) {
+        if (codePoint == Text.EOI) {
+            return;
+        }
+        // alternative EOI isn't a real code point and takes no room in input
+        boolean supplementary = codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT && this.index < this.length;
+        this.index += supplementary ? 2 : 1;
+    }
+
+    private Position currentPosition() {
+        return this.text.positionAt(this.index);
+    }
+
+    /**
+     * assumed EOI not reached yet
+     */
+    private boolean atPotentialTokenStart() {
+        int nextState = this.recognizer.transition(this.recognizer.getInitialState(), codePointAt(this.index));
+        return nextState != LexicalRecognizer.DEAD_END_STATE;
+    }
+
+    // states are offsets of LexicalRecognizer's unchecked API
+    private int nextState(int currState, int codePoint) {
+        if (codePoint == Text.EOI) {
+            return LexicalRecognizer.DEAD_END_STATE;
+        }
+        return this.recognizer.nextOffset(currState, codePoint);
+    }
+
+    public Token nextToken() {
+        int start = this.index;
+        if (codePointAt(this.index) == Text.EOI) {
+            return Domain.END_OF_INPUT.createToken(this.text, new Fragment(this.text, start, start));
+        }
+
+        int currState = this.recognizer.getInitialOffset();
+
+        // Save accept index of last final state encountered
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = this.index;
+
+        while (true) {
+            int currCodePoint = codePointAt(this.index);
+            int nextState = nextState(currState, currCodePoint);
+
+            int accept = this.recognizer.getAcceptIndexAtOffset(currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = this.index;
+            }
+
+            if (nextState != LexicalRecognizer.DEAD_END_STATE) {
+                currState = nextState;
+                advanceCurrentPosition(currCodePoint);
+            } else {
+                // it's time to stop
+
+                if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
+                    this.compiler.addError(currentPosition(), "Unexpected symbol encountered.");
+
+                    // recovery
+                    // symbol we've stumbled upon might be the beginning of a new token
+
+                    while ((codePointAt(this.index) != Text.EOI) && !atPotentialTokenStart()) {
+                        advanceCurrentPosition(codePointAt(this.index));
+                    }
+                    Fragment invalidFragment = new Fragment(this.text, start, this.index);
+                    return Domain.ERROR.createToken(this.text, invalidFragment);
+                } else {
+                    this.index = lastInFinal;
+
+                    Fragment scannedFragment = new Fragment(this.text, start, this.index);
+
+                    StateTag tag = this.recognizer.getAcceptedTag(lastAccept);
+
+                    if (tag instanceof DomainTag) {
+                        DomainTag domainTag = (DomainTag) tag;
+                        return domainTag.getDomain().createToken(this.text, scannedFragment);
+                    } else {
+                        // FOR NOW, THIS CHECK SHOULD PROBABLY BE PERFORMED WHEN BUILDING A RECOGNIZER/SCANNER
+                        throw new RuntimeException("Only DomainTag StateTags allowed as final states in a scanner!");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.automata.DFA;
+import io.github.sboyanovich.scannergenerator.automata.DFATransitionTable;
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.utility.CodePointClassMap;
+import io.github.sboyanovich.scannergenerator.utility.EquivalenceMap;
+
+import java.util.*;
+
+/**
+ * Rewrites a code point level recognizer into a DFA over UTF-8 bytes.
+ * <p>
+ * Every code point range leading from state to state is split into byte sequence ranges
+ * (e.g. [U+0800-U+FFFF] ==> [E0][A0-BF][80-BF], [E1-EF][80-BF][80-BF] minus surrogates) and intermediate states
+ * are created for all proper prefixes. Because UTF-8 is a prefix code, the result is deterministic.
+ * Intermediate states with identical remaining suffixes are shared, which keeps minimization cheap.
+ * <p>
+ * Alphabet of the result is [0, 256], 256 stands for the alternative EOI (U+10FFFF + 1).
+ */
+final class Utf8DfaBuilder {
+    static final int ALPHABET_SIZE = 257;
+    static final int ALT_EOI = 256;
+
+    private static final int[] MAX_FOR_LENGTH = {0x7F, 0x7FF, 0xFFFF, Character.MAX_CODE_POINT};
+
+    // byte sequence range, i.e. all byte strings b[0..n-1] with lo[i] <= b[i] <= hi[i], leading to target
+    private static class Sequence {
+        final int[] lo;
+        final int[] hi;
+        final int target;
+
+        Sequence(int[] lo, int[] hi, int target) {
+            this.lo = lo;
+            this.hi = hi;
+            this.target = target;
+        }
+    }
+
+    private final CodePointClassMap map;
+    private final int[][] table;
+    private final List<StateTag> labels;
+    private final int initialState;
+
+    // states 0..n-1 are original ones, n is drain, intermediate states follow
+    private final int drain;
+    private final List<int[]> rows;
+    private final Map<Integer, StateTag> labelsMap;
+    private final Map<List<Integer>, Integer> intermediateStates;
+    private final Deque<List<Sequence>> pending;
+    private final Deque<Integer> pendingDepths;
+
+    Utf8DfaBuilder(CodePointClassMap map, int[][] table, List<StateTag> labels, int initialState) {
+        this.map = map;
+        this.table = table;
+        this.labels = labels;
+        this.initialState = initialState;
+        this.drain = table.length;
+        this.rows = new ArrayList<>();
+        this.labelsMap = new HashMap<>();
+        this.intermediateStates = new HashMap<>();
+        this.pending = new ArrayDeque<>();
+        this.pendingDepths = new ArrayDeque<>();
+    }
+
+    DFA build() {
+        int n = this.table.length;
+        List<int[]> runs = classRuns();
+
+        for (int i = 0; i <= n; i++) {
+            this.rows.add(null);
+        }
+        int[] drainRow = new int[ALPHABET_SIZE];
+        Arrays.fill(drainRow, this.drain);
+        this.rows.set(this.drain, drainRow);
+
+        for (int state = 0; state < n; state++) {
+            this.labelsMap.put(state, this.labels.get(state));
+            int[] row = computeRow(sequencesFrom(state, runs), 0);
+            row[ALT_EOI] = altEoiTransition(state);
+            this.rows.set(state, row);
+        }
+        while (!this.pending.isEmpty()) {
+            List<Sequence> active = this.pending.poll();
+            int depth = this.pendingDepths.poll();
+            int state = this.intermediateStates.get(suffixKey(active, depth));
+            this.rows.set(state, computeRow(active, depth));
+        }
+
+        int numberOfStates = this.rows.size();
+        int[][] transitionTable = this.rows.toArray(new int[0][]);
+        DFATransitionTable dfaTransitionTable = new DFATransitionTable(
+                numberOfStates, ALPHABET_SIZE, transitionTable, EquivalenceMap.identityMap(ALPHABET_SIZE)
+        );
+        return new DFA(numberOfStates, ALPHABET_SIZE, this.initialState, this.labelsMap, dfaTransitionTable);
+    }
+
+    private int altEoiTransition(int state) {
+        if (this.map.getDomain() != Character.MAX_CODE_POINT + 2) {
+            return this.drain;
+        }
+        int to = this.table[state][this.map.getEqClass(Character.MAX_CODE_POINT + 1)];
+        return (to == LexicalRecognizer.DEAD_END_STATE) ? this.drain : to;
+    }
+
+    // maximal runs of encodable code points belonging to the same class: {start, end, class}
+    private List<int[]> classRuns() {
+        List<int[]> result = new ArrayList<>();
+        int limit = Math.min(this.map.getDomain(), Character.MAX_CODE_POINT + 1);
+        int start = 0;
+        while (start < limit) {
+            if (Character.isSurrogate((char) start) && start <= Character.MAX_SURROGATE) {
+                start = Character.MAX_SURROGATE + 1;
+                continue;
+            }
+            int symbolClass = this.map.getEqClass(start);
+            int end = start;
+            while (end + 1 < limit && end + 1 != Character.MIN_SURROGATE &&
+                    this.map.getEqClass(end + 1) == symbolClass) {
+                end++;
+            }
+            result.add(new int[]{start, end, symbolClass});
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private List<Sequence> sequencesFrom(int state, List<int[]> runs) {
+        List<Sequence> result = new ArrayList<>();
+        int rangeStart = -1;
+        int rangeEnd = -1;
+        int rangeTarget = LexicalRecognizer.DEAD_END_STATE;
+        for (int[] run : runs) {
+            int target = this.table[state][run[2]];
+            if (target == rangeTarget && run[0] == rangeEnd + 1) {
+                rangeEnd = run[1];
+                continue;
+            }
+            if (rangeTarget != LexicalRecognizer.DEAD_END_STATE) {
+                split(rangeStart, rangeEnd, rangeTarget, result);
+            }
+            rangeStart = run[0];
+            rangeEnd = run[1];
+            rangeTarget = target;
+        }
+        if (rangeTarget != LexicalRecognizer.DEAD_END_STATE) {
+            split(rangeStart, rangeEnd, rangeTarget, result);
+        }
+        return result;
+    }
+
+    // splits [start, end] (no surrogates inside) into ranges of byte sequences
+    private static void split(int start, int end, int target, List<Sequence> result) {
+        // same encoded length for both ends
+        for (int max : MAX_FOR_LENGTH) {
+            if (start <= max && max < end) {
+                split(start, max, target, result);
+                split(max + 1, end, target, result);
+                return;
+            }
+        }
+        if (end <= 0x7F) {
+            result.add(new Sequence(new int[]{start}, new int[]{end}, target));
+            return;
+        }
+        // every continuation byte position must span either a single value or the whole [80-BF]
+        for (int i = 1; i < 4; i++) {
+            int mask = (1 << (6 * i)) - 1;
+            if ((start & ~mask) != (end & ~mask)) {
+                if ((start & mask) != 0) {
+                    split(start, start | mask, target, result);
+                    split((start | mask) + 1, end, target, result);
+                    return;
+                }
+                if ((end & mask) != mask) {
+                    split(start, (end & ~mask) - 1, target, result);
+                    split(end & ~mask, end, target, result);
+                    return;
+                }
+            }
+        }
+        result.add(new Sequence(encode(start), encode(end), target));
+    }
+
+    private static int[] encode(int codePoint) {
+        if (codePoint <= 0x7F) {
+            return new int[]{codePoint};
+        }
+        if (codePoint <= 0x7FF) {
+            return new int[]{0xC0 | (codePoint >> 6), 0x80 | (codePoint & 0x3F)};
+        }
+        if (codePoint <= 0xFFFF) {
+            return new int[]{
+                    0xE0 | (codePoint >> 12), 0x80 | ((codePoint >> 6) & 0x3F), 0x80 | (codePoint & 0x3F)
+            };
+        }
+        return new int[]{
+                0xF0 | (codePoint >> 18), 0x80 | ((codePoint >> 12) & 0x3F),
+                0x80 | ((codePoint >> 6) & 0x3F), 0x80 | (codePoint & 0x3F)
+        };
+    }
+
+    // describes what's left to read in all active sequences
+    private static List<Integer> suffixKey(List<Sequence> active, int depth) {
+        List<Integer> key = new ArrayList<>();
+        for (Sequence sequence : active) {
+            key.add(sequence.lo.length - depth);
+            for (int i = depth; i < sequence.lo.length; i++) {
+                key.add(sequence.lo[i]);
+                key.add(sequence.hi[i]);
+            }
+            key.add(sequence.target);
+        }
+        return key;
+    }
+
+    private int[] computeRow(List<Sequence> active, int depth) {
+        int[] row = new int[ALPHABET_SIZE];
+        Arrays.fill(row, this.drain);
+
+        for (int b = 0; b < ALPHABET_SIZE - 1; b++) {
+            List<Sequence> next = new ArrayList<>();
+            for (Sequence sequence : active) {
+                if (sequence.lo[depth] <= b && b <= sequence.hi[depth]) {
+                    next.add(sequence);
+                }
+            }
+            if (next.isEmpty()) {
+                continue;
+            }
+            if (next.get(0).lo.length == depth + 1) {
+                // prefix code: a completed sequence can't share this byte with any other one
+                row[b] = next.get(0).target;
+            } else {
+                row[b] = intermediateState(next, depth + 1);
+            }
+        }
+
+        return row;
+    }
+
+    private int intermediateState(List<Sequence> active, int depth) {
+        List<Integer> key = suffixKey(active, depth);
+        Integer state = this.intermediateStates.get(key);
+        if (state == null) {
+            state = this.rows.size();
+            this.rows.add(null);
+            this.intermediateStates.put(key, state);
+            this.pending.add(active);
+            this.pendingDepths.add(depth);
+        }
+        return state;
+    }
+}
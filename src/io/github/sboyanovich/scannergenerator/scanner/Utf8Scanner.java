@@ -0,0 +1,150 @@
+package io.github.sboyanovich.scannergenerator.scanner;
+
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Scans raw UTF-8 input with recognizers obtained from LexicalRecognizer.toUtf8(), so nothing is decoded
+ * on the hot path. Unlike Scanner, doesn't create tokens: next() returns the tag of recognized token,
+ * while its bounds are available as byte offsets. Only getLexeme() decodes anything.
+ * <p>
+ * Input is scanned from its position to its limit, as with Text, alternative EOI follows the last byte.
+ * No normalization is performed.
+ */
+public class Utf8Scanner {
+    public static final StateTag END_OF_INPUT = new StateTag() {
+        @Override
+        public String toString() {
+            return "END_OF_INPUT";
+        }
+    };
+
+    public static final StateTag ERROR = new StateTag() {
+        @Override
+        public String toString() {
+            return "ERROR";
+        }
+    };
+
+    private final ByteBuffer input;
+    private final int limit;
+    private LexicalRecognizer recognizer;
+
+    private int currPos;
+    private int tokenStart;
+    private int tokenFollow;
+
+    public Utf8Scanner(ByteBuffer input, LexicalRecognizer byteRecognizer) {
+        this.input = Objects.requireNonNull(input);
+        this.limit = input.limit();
+        this.recognizer = Objects.requireNonNull(byteRecognizer);
+        this.currPos = input.position();
+        this.tokenStart = this.currPos;
+        this.tokenFollow = this.currPos;
+    }
+
+    /**
+     * Recognizer to be used from the next token onward, for scanners with several modes.
+     */
+    public void setRecognizer(LexicalRecognizer byteRecognizer) {
+        this.recognizer = Objects.requireNonNull(byteRecognizer);
+    }
+
+    private int symbolAt(int index) {
+        if (index < this.limit) {
+            return this.input.get(index) & 0xFF;
+        }
+        if (index == this.limit) {
+            return Utf8DfaBuilder.ALT_EOI;
+        }
+        return Text.EOI;
+    }
+
+    // continuation bytes never lead out of initial state, so recovery always stops at a code point boundary
+    private boolean atPotentialTokenStart() {
+        int nextState = this.recognizer.transition(this.recognizer.getInitialState(), symbolAt(this.currPos));
+        return nextState != LexicalRecognizer.DEAD_END_STATE;
+    }
+
+    // states are offsets of LexicalRecognizer's unchecked API
+    private int nextState(int currState, int symbol) {
+        if (symbol == Text.EOI) {
+            return LexicalRecognizer.DEAD_END_STATE;
+        }
+        return this.recognizer.nextOffset(currState, symbol);
+    }
+
+    /**
+     * @return tag of the next token's final state, END_OF_INPUT or ERROR for unrecognized input
+     */
+    public StateTag next() {
+        this.tokenStart = this.currPos;
+        if (symbolAt(this.currPos) == Text.EOI) {
+            this.tokenFollow = this.currPos;
+            return END_OF_INPUT;
+        }
+
+        int currState = this.recognizer.getInitialOffset();
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = this.currPos;
+
+        while (true) {
+            int accept = this.recognizer.getAcceptIndexAtOffset(currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = this.currPos;
+            }
+
+            int nextState = nextState(currState, symbolAt(this.currPos));
+            if (nextState != LexicalRecognizer.DEAD_END_STATE) {
+                currState = nextState;
+                this.currPos++;
+                continue;
+            }
+
+            if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
+                // recovery
+                // symbol we've stumbled upon might be the beginning of a new token
+                while ((symbolAt(this.currPos) != Text.EOI) && !atPotentialTokenStart()) {
+                    this.currPos++;
+                }
+                this.tokenFollow = this.currPos;
+                return ERROR;
+            }
+
+            this.currPos = lastInFinal;
+            this.tokenFollow = this.currPos;
+            return this.recognizer.getAcceptedTag(lastAccept);
+        }
+    }
+
+    /**
+     * @return byte offset of the last token's first byte
+     */
+    public int getTokenStart() {
+        return this.tokenStart;
+    }
+
+    /**
+     * @return byte offset following the last token
+     */
+    public int getTokenFollow() {
+        return this.tokenFollow;
+    }
+
+    /**
+     * Decodes the last token. Alternative EOI is not part of the lexeme.
+     */
+    public String getLexeme() {
+        int start = Math.min(this.tokenStart, this.limit);
+        int follow = Math.min(this.tokenFollow, this.limit);
+        byte[] bytes = new byte[follow - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.input.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -16,10 +16,16 @@ import io.github.sboyanovich.scannergenerator.utility.Utility;
 public interface Domain {
     Token createToken(Text text, Fragment fragment);
 
+    // what scanners call, domains that don't need a Fragment (see SimpleDomain) may avoid making one
+    default Token createToken(Text text, int startingIndex, int followingIndex) {
+        return createToken(text, new Fragment(text, startingIndex, followingIndex));
+    }
+
+    // attribute is made when first asked for, Fragment.getLexeme() gives the text without copying it
     DomainWithAttribute<String> ERROR = new DomainWithAttribute<>() {
         @Override
         public TokenWithAttribute<String> createToken(Text text, Fragment fragment) {
-            return new TokenWithAttribute<>(fragment, ERROR, attribute(text, fragment));
+            return new TokenWithAttribute<>(text, fragment, ERROR);
         }
 
         @Override
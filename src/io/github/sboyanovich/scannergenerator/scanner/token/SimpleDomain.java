@@ -0,0 +1,22 @@
+package io.github.sboyanovich.scannergenerator.scanner.token;
+
+import io.github.sboyanovich.scannergenerator.scanner.Fragment;
+import io.github.sboyanovich.scannergenerator.scanner.Text;
+
+/**
+ * Opt-in for domains without attribute (keywords, op signs, parens etc.), whose tokens only differ in span.
+ * Such tokens are SimpleTokens, which are half the size of a BasicToken with its Fragment.
+ * <p>
+ * Should be implemented with an enum, constants need no bodies.
+ */
+public interface SimpleDomain extends Domain {
+    @Override
+    default Token createToken(Text text, Fragment fragment) {
+        return new SimpleToken(text, fragment.getStartingIndex(), fragment.getFollowingIndex(), this);
+    }
+
+    @Override
+    default Token createToken(Text text, int startingIndex, int followingIndex) {
+        return new SimpleToken(text, startingIndex, followingIndex, this);
+    }
+}
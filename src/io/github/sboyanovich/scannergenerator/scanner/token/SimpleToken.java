@@ -0,0 +1,37 @@
+package io.github.sboyanovich.scannergenerator.scanner.token;
+
+import io.github.sboyanovich.scannergenerator.scanner.Fragment;
+import io.github.sboyanovich.scannergenerator.scanner.Text;
+
+/**
+ * Token of a SimpleDomain. Keeps nothing but its span next to the (shared) domain, unless text is streamed.
+ * Input of streamed texts is released as scanning goes on, so their tokens keep a Fragment with positions
+ * resolved when the token is made.
+ */
+public final class SimpleToken extends Token {
+    private final Text text;
+    private final long span;
+
+    public SimpleToken(Text text, int startingIndex, int followingIndex, SimpleDomain tag) {
+        super(text.isStreamed() ? new Fragment(text, startingIndex, followingIndex) : null, tag);
+        this.text = text;
+        this.span = Fragment.pack(startingIndex, followingIndex);
+    }
+
+    /**
+     * For texts held in memory, every call makes a new Fragment, which resolves positions when asked for them.
+     */
+    @Override
+    public Fragment getCoords() {
+        Fragment coords = super.getCoords();
+        if (coords != null) {
+            return coords;
+        }
+        return new Fragment(this.text, (int) (this.span >>> 32), (int) this.span);
+    }
+
+    @Override
+    public long getSpan() {
+        return this.span;
+    }
+}
@@ -6,21 +6,35 @@ public abstract class Token {
     private Fragment coords;
     private Domain tag;
 
-    public Token(Fragment coords, Domain tag) {
+    protected Token(Fragment coords, Domain tag) {
         this.coords = coords;
         this.tag = tag;
     }
 
+    /**
+     * For tokens that keep their span themselves and override getCoords() (e.g. SimpleToken).
+     */
+    protected Token(Domain tag) {
+        this(null, tag);
+    }
+
     public Fragment getCoords() {
         return coords;
     }
 
+    /**
+     * @return span of the token, packed as in Fragment.getSpan()
+     */
+    public long getSpan() {
+        return getCoords().getSpan();
+    }
+
     public Domain getTag() {
         return tag;
     }
 
     @Override
     public String toString() {
-        return this.tag + " " + this.coords + ": ";
+        return this.tag + " " + getCoords() + ": ";
     }
 }
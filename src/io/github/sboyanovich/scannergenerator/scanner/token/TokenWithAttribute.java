@@ -1,24 +1,53 @@
 package io.github.sboyanovich.scannergenerator.scanner.token;
 
 import io.github.sboyanovich.scannergenerator.scanner.Fragment;
+import io.github.sboyanovich.scannergenerator.scanner.Text;
 
 /**
  * Standard base class for tokens with attribute.
  */
 public class TokenWithAttribute<T> extends Token {
     private T attribute;
+    // text to compute the attribute from, null once it's computed
+    // volatile, so that threads seeing null also see the attribute, which is written before
+    private volatile Text text;
 
     public TokenWithAttribute(Fragment coords, DomainWithAttribute<T> tag, T attribute) {
         super(coords, tag);
         this.attribute = attribute;
+        this.text = null;
     }
 
+    /**
+     * Attribute is computed by tag when first asked for. Streamed input may be released before that,
+     * so for streamed texts it's computed right away.
+     */
+    public TokenWithAttribute(Text text, Fragment coords, DomainWithAttribute<T> tag) {
+        super(coords, tag);
+        if (text.isStreamed()) {
+            this.attribute = tag.attribute(text, coords);
+            this.text = null;
+        } else {
+            this.attribute = null;
+            this.text = text;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
     public T getAttribute() {
+        Text text = this.text;
+        if (text != null) {
+            // tag is the one given to constructor, threads racing here compute equal attributes
+            T attribute = ((DomainWithAttribute<T>) getTag()).attribute(text, getCoords());
+            this.attribute = attribute;
+            this.text = null;
+            return attribute;
+        }
         return this.attribute;
     }
 
     @Override
     public String toString() {
-        return super.toString() + this.attribute;
+        return super.toString() + getAttribute();
     }
 }
@@ -0,0 +1,98 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.utility.CodePointClassMap;
+import io.github.sboyanovich.scannergenerator.utility.Utility;
+
+import java.util.Random;
+
+/**
+ * Compares lookups in CodePointClassMap with those in a plain int[] of all code points, which it replaces.
+ * Classes are those of a Java-like lexer: general categories, with ASCII punctuation split further.
+ * <p>
+ * Run with res/ on the class path. Prints symbols per second for each input, the best of several rounds.
+ */
+public class ClassMapBenchmark {
+    private static final int SYMBOLS = 20_000_000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int domain = Character.MAX_CODE_POINT + 2;
+        int[] dense = new int[domain];
+        int categories = Character.FINAL_QUOTE_PUNCTUATION + 1;
+        for (int i = 0; i < domain - 1; i++) {
+            dense[i] = Character.getType(i);
+        }
+        String punctuation = "!%&()*+,-./:;<=>?[]^{|}~";
+        for (int i = 0; i < punctuation.length(); i++) {
+            dense[punctuation.charAt(i)] = categories + i;
+        }
+        dense[domain - 1] = categories + punctuation.length();
+        CodePointClassMap map = new CodePointClassMap(domain, categories + punctuation.length() + 1, dense);
+
+        int[] ascii = repeat(Utility.getTextFromResourceFile("MJTest2.txt").codePoints().toArray());
+        int[] mixed = repeat(mixedScript());
+
+        report("MJTest2.txt, int[]", ascii, () -> lookUpDense(dense, ascii));
+        report("MJTest2.txt, CodePointClassMap", ascii, () -> lookUp(map, ascii));
+        report("mixed scripts, int[]", mixed, () -> lookUpDense(dense, mixed));
+        report("mixed scripts, CodePointClassMap", mixed, () -> lookUp(map, mixed));
+    }
+
+    // identifiers in Latin, Cyrillic, Greek and CJK, with the odd emoji
+    private static int[] mixedScript() {
+        int[][] scripts = {{'a', 'z'}, {0x430, 0x44F}, {0x3B1, 0x3C9}, {0x4E00, 0x9FFF}};
+        int[] emoji = {0x1F600, 0x1F64F};
+        Random random = new Random(42);
+        StringBuilder result = new StringBuilder();
+        while (result.length() < 100_000) {
+            int[] script = (random.nextInt(100) == 0) ? emoji : scripts[random.nextInt(scripts.length)];
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                result.appendCodePoint(script[0] + random.nextInt(script[1] - script[0] + 1));
+            }
+            result.append(random.nextBoolean() ? " = " : ";\n");
+        }
+        return result.codePoints().toArray();
+    }
+
+    private static int[] repeat(int[] codePoints) {
+        int[] result = new int[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            result[i] = codePoints[i % codePoints.length];
+        }
+        return result;
+    }
+
+    // sums are returned, so that lookups aren't optimized away
+    private static long lookUpDense(int[] dense, int[] input) {
+        long sum = 0;
+        for (int codePoint : input) {
+            sum += dense[codePoint];
+        }
+        return sum;
+    }
+
+    private static long lookUp(CodePointClassMap map, int[] input) {
+        long sum = 0;
+        for (int codePoint : input) {
+            sum += map.getEqClass(codePoint);
+        }
+        return sum;
+    }
+
+    interface Run {
+        long run();
+    }
+
+    // best of several rounds, the first ones warm up
+    private static void report(String name, int[] input, Run run) {
+        long best = Long.MAX_VALUE;
+        long sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            sum = run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(name + ": " + (input.length * 1000L / best) + "M symbols/s (checksum " + sum + ")");
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.automata.NFA;
+import io.github.sboyanovich.scannergenerator.automata.NFAStateGraphBuilder;
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;
+import io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.OperatorsTags;
+import io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags;
+
+import java.util.*;
+
+import static io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags.*;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdge;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdgeSubtractive;
+
+/**
+ * Java-like lexical grammar over tags of mockjava, a smaller version of MockJavaTest's.
+ * Gives benchmarks a recognizer of realistic size for input like res/MJTest2.txt.
+ */
+final class JavaLikeGrammar {
+    // in order of OperatorsTags
+    private static final String[] OPERATORS = {
+            "=", ">", "<", "!", "~", "?", ":", "->", "==", ">=", "<=", "!=", "&&", "||", "++", "--",
+            "+", "-", "*", "/", "&", "|", "^", "%", "<<", ">>", ">>>",
+            "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<=", ">>=", ">>>="
+    };
+
+    private JavaLikeGrammar() {
+    }
+
+    /**
+     * @param alphabetSize Character.MAX_CODE_POINT + 2 for scanners, so that alternative EOI is in the alphabet
+     */
+    static LexicalRecognizer build(int alphabetSize) {
+        // tags of higher priority come later
+        List<StateTag> priorityList = new ArrayList<>();
+        NFA lang = NFA.emptyLanguage(alphabetSize);
+
+        NFA whitespaceNFA = NFA.acceptsAllTheseSymbols(alphabetSize, Set.of(" ", "\t", "\n", "\r"))
+                .positiveIteration()
+                .setAllFinalStatesTo(WHITESPACE);
+        lang = lang.union(whitespaceNFA);
+        priorityList.add(WHITESPACE);
+
+        NFAStateGraphBuilder commentNFAEdges = new NFAStateGraphBuilder(6, alphabetSize);
+        addEdge(commentNFAEdges, 0, 1, Set.of("/"));
+        addEdge(commentNFAEdges, 1, 2, Set.of("*"));
+        addEdge(commentNFAEdges, 2, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 2, 3, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 3, 3, Set.of("*"));
+        addEdge(commentNFAEdges, 3, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 4, 3, Set.of("*", "/"));
+        addEdge(commentNFAEdges, 4, 4, Set.of("*"));
+        addEdge(commentNFAEdges, 4, 5, Set.of("/"));
+        lang = lang.union(new NFA(6, alphabetSize, 0, Map.of(5, COMMENT), commentNFAEdges.build()));
+        priorityList.add(COMMENT);
+
+        // built as a graph, lambda steps around a set of almost all symbols take too much memory to remove
+        NFAStateGraphBuilder stringNFAEdges = new NFAStateGraphBuilder(4, alphabetSize);
+        addEdge(stringNFAEdges, 0, 1, Set.of("\""));
+        addEdgeSubtractive(stringNFAEdges, 1, 1, Set.of("\\", "\"", "\n"));
+        addEdge(stringNFAEdges, 1, 2, Set.of("\\"));
+        addEdge(stringNFAEdges, 2, 1, Set.of("b", "t", "n", "f", "r", "\"", "'", "\\"));
+        addEdge(stringNFAEdges, 1, 3, Set.of("\""));
+        lang = lang.union(new NFA(4, alphabetSize, 0, Map.of(3, STRING_LITERAL), stringNFAEdges.build()));
+        priorityList.add(STRING_LITERAL);
+
+        Map<String, StateTags> punctuation = new LinkedHashMap<>();
+        punctuation.put("(", LPAREN);
+        punctuation.put(")", RPAREN);
+        punctuation.put("{", LBRACE);
+        punctuation.put("}", RBRACE);
+        punctuation.put("[", LSQ_BRACKET);
+        punctuation.put("]", RSQ_BRACKET);
+        punctuation.put(";", SEMICOLON);
+        punctuation.put(",", COMMA);
+        punctuation.put(".", DOT);
+        punctuation.put("...", ELLIPSIS);
+        punctuation.put("@", AT);
+        punctuation.put("::", DOUBLE_COLON);
+        for (Map.Entry<String, StateTags> entry : punctuation.entrySet()) {
+            lang = lang.union(NFA.acceptsThisWord(alphabetSize, entry.getKey()).setAllFinalStatesTo(entry.getValue()));
+            priorityList.add(entry.getValue());
+        }
+        OperatorsTags[] operatorsTags = OperatorsTags.values();
+        for (int i = 0; i < operatorsTags.length; i++) {
+            lang = lang.union(NFA.acceptsThisWord(alphabetSize, OPERATORS[i]).setAllFinalStatesTo(operatorsTags[i]));
+            priorityList.add(operatorsTags[i]);
+        }
+
+        // ASCII only, Unicode letters would leave too many classes to determinize in reasonable time
+        NFA letterNFA = NFA.acceptsThisRange(alphabetSize, "a", "z")
+                .union(NFA.acceptsThisRange(alphabetSize, "A", "Z"))
+                .union(NFA.acceptsAllTheseSymbols(alphabetSize, Set.of("_", "$")));
+        NFA identifierNFA = letterNFA
+                .concatenation(letterNFA.union(NFA.acceptsThisRange(alphabetSize, "0", "9")).iteration());
+        lang = lang.union(identifierNFA.setAllFinalStatesTo(IDENTIFIER));
+        priorityList.add(IDENTIFIER);
+
+        lang = lang.union(NFA.acceptsThisRange(alphabetSize, "0", "9").positiveIteration()
+                .setAllFinalStatesTo(INTEGER_LITERAL));
+        priorityList.add(INTEGER_LITERAL);
+
+        // keywords and literals win over identifiers
+        for (StateTags tag : StateTags.values()) {
+            String name = tag.name();
+            if (name.startsWith("KEYWORD_") || tag == TRUE || tag == FALSE || tag == NULL) {
+                String word = name.substring(name.indexOf('_') + 1).toLowerCase();
+                lang = lang.union(NFA.acceptsThisWord(alphabetSize, word).setAllFinalStatesTo(tag));
+                priorityList.add(tag);
+            }
+        }
+
+        Map<StateTag, Integer> priorityMap = new HashMap<>();
+        for (int i = 0; i < priorityList.size(); i++) {
+            priorityMap.put(priorityList.get(i), i);
+        }
+
+        // This appears to be necessary for determinization to work properly (see MockJavaTest).
+        return new LexicalRecognizer(lang.removeLambdaSteps().determinize(priorityMap));
+    }
+}
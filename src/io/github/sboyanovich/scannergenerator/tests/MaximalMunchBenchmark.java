@@ -0,0 +1,89 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.automata.NFA;
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.Compiler;
+import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;
+import io.github.sboyanovich.scannergenerator.scanner.Scanner;
+import io.github.sboyanovich.scannergenerator.scanner.Text;
+import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
+import io.github.sboyanovich.scannergenerator.utility.Utility;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags.IDENTIFIER;
+import static io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags.INTEGER_LITERAL;
+
+/**
+ * Compares scanners of Compiler.getScanner() with those of getLinearTimeScanner().
+ * Rules a | a*b on a^n make the usual maximal munch scan O(n^2) symbols, linear-time mode should scan O(n).
+ * Regular input (res/MJTest2.txt repeated, see JavaLikeGrammar) shows what remembering failed states costs.
+ * <p>
+ * Run with res/ on the class path. Prints times of each scan, the best of several rounds.
+ */
+public class MaximalMunchBenchmark {
+    private static final int[] LENGTHS = {5_000, 20_000, 80_000};
+    private static final int REGULAR_SIZE = 2_500_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int alphabetSize = Character.MAX_CODE_POINT + 2;
+
+        // "a" is tagged IDENTIFIER and a*b INTEGER_LITERAL, names don't matter here
+        NFA singleNFA = NFA.singleLetterLanguage(alphabetSize, "a")
+                .setAllFinalStatesTo(IDENTIFIER);
+        NFA loopNFA = NFA.singleLetterLanguage(alphabetSize, "a")
+                .iteration()
+                .concatenation(NFA.singleLetterLanguage(alphabetSize, "b"))
+                .setAllFinalStatesTo(INTEGER_LITERAL);
+        Map<StateTag, Integer> priorityMap = new HashMap<>();
+        priorityMap.put(IDENTIFIER, 0);
+        priorityMap.put(INTEGER_LITERAL, 1);
+        LexicalRecognizer pathological = new LexicalRecognizer(
+                singleNFA.union(loopNFA).removeLambdaSteps().determinize(priorityMap)
+        );
+
+        for (int n : LENGTHS) {
+            char[] input = new char[n];
+            Arrays.fill(input, 'a');
+            report("a | a*b on a^" + n, pathological, new Text(new String(input)));
+        }
+
+        LexicalRecognizer javaLike = JavaLikeGrammar.build(alphabetSize);
+        String sample = Utility.getTextFromResourceFile("MJTest2.txt");
+        StringBuilder regular = new StringBuilder();
+        while (regular.length() < REGULAR_SIZE) {
+            regular.append(sample);
+        }
+        report("MJTest2.txt, " + regular.length() + " chars", javaLike, new Text(regular.toString()));
+    }
+
+    private static int scan(Scanner scanner) {
+        int tokens = 0;
+        while (scanner.nextToken().getTag() != Domain.END_OF_INPUT) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    // best of several rounds, the first ones warm up
+    private static void report(String name, LexicalRecognizer recognizer, Text text) {
+        long bestUsual = Long.MAX_VALUE;
+        long bestLinear = Long.MAX_VALUE;
+        int usualTokens = 0;
+        int linearTokens = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            usualTokens = scan(new Compiler(recognizer).getScanner(text));
+            bestUsual = Math.min(bestUsual, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            linearTokens = scan(new Compiler(recognizer).getLinearTimeScanner(text));
+            bestLinear = Math.min(bestLinear, System.nanoTime() - start);
+        }
+        System.out.println(name + ": usual " + bestUsual / 1_000_000 + "ms, linear " + bestLinear / 1_000_000
+                + "ms (" + usualTokens + "/" + linearTokens + " tokens)");
+    }
+}
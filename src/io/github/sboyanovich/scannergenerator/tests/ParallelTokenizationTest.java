@@ -0,0 +1,213 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.automata.NFA;
+import io.github.sboyanovich.scannergenerator.automata.NFAStateGraphBuilder;
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.Compiler;
+import io.github.sboyanovich.scannergenerator.scanner.*;
+import io.github.sboyanovich.scannergenerator.scanner.Scanner;
+import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
+import io.github.sboyanovich.scannergenerator.scanner.token.Token;
+
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags.*;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdge;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdgeSubtractive;
+
+/**
+ * Checks that Scanner.tokenizeInParallel() gives the same tokens and errors as nextToken(), for chunks that start
+ * inside long comments and runs of errors, then compares times of sequential and parallel scanning.
+ */
+public class ParallelTokenizationTest {
+    private static final int[] CHUNK_SIZES = {1, 7, 64, 1000, 4096, Scanner.DEFAULT_CHUNK_SIZE};
+    private static final int BATCH = 1000;
+
+    public static void main(String[] args) {
+        LexicalRecognizer recognizer = buildRecognizer();
+        String input = generateInput(new Random(42), 300);
+
+        List<String> expected = new ArrayList<>();
+        Compiler compiler = new Compiler(recognizer);
+        Scanner scanner = compiler.getScanner(input);
+        Token t;
+        do {
+            t = scanner.nextToken();
+            expected.add(describe(t));
+        } while (t.getTag() != Domain.END_OF_INPUT);
+        String expectedMessages = compiler.getSortedMessages().toString();
+        System.out.println(expected.size() + " tokens, " + compiler.getSortedMessages().size() + " errors");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int failures = 0;
+        for (int chunkSize : CHUNK_SIZES) {
+            for (boolean streamed : new boolean[]{false, true}) {
+                for (boolean batches : new boolean[]{false, true}) {
+                    Compiler parallelCompiler = new Compiler(recognizer);
+                    Text text = streamed ? Text.fromReader(new StringReader(input)) : new Text(input);
+                    Scanner parallel = parallelCompiler.getScanner(text);
+                    List<String> actual = batches
+                            ? tokenizeInBatches(parallel, pool, chunkSize)
+                            : tokenizeAtOnce(parallel, pool, chunkSize);
+                    boolean same = actual.equals(expected)
+                            && parallelCompiler.getSortedMessages().toString().equals(expectedMessages);
+                    System.out.println("chunks of " + chunkSize + (streamed ? ", streamed" : "")
+                            + (batches ? ", in batches" : "") + ": " + (same ? "OK" : "MISMATCH"));
+                    if (!same) {
+                        failures++;
+                    }
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "All the same." : failures + " mismatches!");
+
+        String large = generateInput(new Random(7), 40_000);
+        System.out.println();
+        System.out.println(large.length() + " chars:");
+        reportTimes(recognizer, large);
+        pool.shutdown();
+    }
+
+    private static LexicalRecognizer buildRecognizer() {
+        int alphabetSize = Character.MAX_CODE_POINT + 2;
+
+        NFA whitespaceNFA = NFA.acceptsAllTheseSymbols(alphabetSize, Set.of(" ", "\t", "\n", "\r"))
+                .positiveIteration()
+                .setAllFinalStatesTo(WHITESPACE);
+
+        NFAStateGraphBuilder commentNFAEdges = new NFAStateGraphBuilder(6, alphabetSize);
+        addEdge(commentNFAEdges, 0, 1, Set.of("/"));
+        addEdge(commentNFAEdges, 1, 2, Set.of("*"));
+        addEdge(commentNFAEdges, 2, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 2, 3, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 3, 3, Set.of("*"));
+        addEdge(commentNFAEdges, 3, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 4, 3, Set.of("*", "/"));
+        addEdge(commentNFAEdges, 4, 4, Set.of("*"));
+        addEdge(commentNFAEdges, 4, 5, Set.of("/"));
+        NFA commentNFA = new NFA(6, alphabetSize, 0, Map.of(5, COMMENT), commentNFAEdges.build());
+
+        NFA identifierNFA = NFA.acceptsThisRange(alphabetSize, "a", "z")
+                .positiveIteration()
+                .setAllFinalStatesTo(IDENTIFIER);
+        NFA integerLiteralNFA = NFA.acceptsThisRange(alphabetSize, "0", "9")
+                .positiveIteration()
+                .setAllFinalStatesTo(INTEGER_LITERAL);
+        NFA lparenNFA = NFA.singleLetterLanguage(alphabetSize, "(")
+                .setAllFinalStatesTo(LPAREN);
+        NFA rparenNFA = NFA.singleLetterLanguage(alphabetSize, ")")
+                .setAllFinalStatesTo(RPAREN);
+        NFA semicolonNFA = NFA.singleLetterLanguage(alphabetSize, ";")
+                .setAllFinalStatesTo(SEMICOLON);
+
+        List<StateTag> priorityList = List.of(
+                WHITESPACE, COMMENT, IDENTIFIER, INTEGER_LITERAL, LPAREN, RPAREN, SEMICOLON
+        );
+        Map<StateTag, Integer> priorityMap = new HashMap<>();
+        for (int i = 0; i < priorityList.size(); i++) {
+            priorityMap.put(priorityList.get(i), i);
+        }
+
+        NFA lang = whitespaceNFA
+                .union(commentNFA)
+                .union(identifierNFA)
+                .union(integerLiteralNFA)
+                .union(lparenNFA)
+                .union(rparenNFA)
+                .union(semicolonNFA);
+
+        return new LexicalRecognizer(lang.removeLambdaSteps().determinize(priorityMap));
+    }
+
+    // statements, comments up to several chunks long and runs of symbols no token starts with
+    private static String generateInput(Random random, int statements) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            result.append("call(").append(random.nextInt(1000)).append(");\n");
+            switch (random.nextInt(4)) {
+                case 0:
+                    result.append("/*");
+                    int length = random.nextInt(3000);
+                    for (int j = 0; j < length; j++) {
+                        result.append("x */(;".charAt(random.nextInt(4)));
+                    }
+                    result.append("**/\n");
+                    break;
+                case 1:
+                    int errors = random.nextInt(50);
+                    for (int j = 0; j < errors; j++) {
+                        result.append('#');
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        // comment that isn't closed, scanning backs up to "/"
+        result.append("/* to the end");
+        return result.toString();
+    }
+
+    private static String describe(Token token) {
+        Fragment coords = token.getCoords();
+        return token.getTag() + " " + coords.getStartingIndex() + "-" + coords.getFollowingIndex();
+    }
+
+    private static List<String> tokenizeAtOnce(Scanner scanner, ForkJoinPool pool, int chunkSize) {
+        List<String> result = new ArrayList<>();
+        TokenBuffer buffer = scanner.tokenizeInParallel(pool, chunkSize);
+        for (int i = 0; i < buffer.size(); i++) {
+            result.add(describe(scanner.getToken(buffer, i)));
+        }
+        return result;
+    }
+
+    private static List<String> tokenizeInBatches(Scanner scanner, ForkJoinPool pool, int chunkSize) {
+        List<String> result = new ArrayList<>();
+        TokenBuffer buffer = new TokenBuffer(BATCH);
+        boolean ended = false;
+        while (!ended) {
+            buffer.clear();
+            scanner.tokenizeInParallel(pool, chunkSize, buffer);
+            for (int i = 0; i < buffer.size(); i++) {
+                result.add(describe(scanner.getToken(buffer, i)));
+            }
+            ended = (buffer.getKind(buffer.size() - 1) == TokenBuffer.END_OF_INPUT);
+        }
+        return result;
+    }
+
+    // best of several rounds, the first ones warm up
+    private static void reportTimes(LexicalRecognizer recognizer, String input) {
+        int rounds = 5;
+        Text text = new Text(input);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            Scanner scanner = new Compiler(recognizer).getScanner(text);
+            TokenBuffer buffer = new TokenBuffer(1 << 16);
+            long start = System.nanoTime();
+            do {
+                buffer.clear();
+                scanner.tokenizeInto(buffer);
+            } while (buffer.getKind(buffer.size() - 1) != TokenBuffer.END_OF_INPUT);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println("tokenizeInto(): " + best / 1_000_000 + "ms");
+
+        for (int threads : new int[]{1, 2, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                Scanner scanner = new Compiler(recognizer).getScanner(text);
+                long start = System.nanoTime();
+                scanner.tokenizeInParallel(pool, 1 << 16);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.println("tokenizeInParallel(), " + threads + " threads: " + best / 1_000_000 + "ms");
+            pool.shutdown();
+        }
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+    }
+}
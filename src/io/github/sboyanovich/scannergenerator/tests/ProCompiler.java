@@ -10,16 +10,20 @@ import java.util.SortedMap;
 public class ProCompiler {
     private MessageList messages;
     private NameDictionary names;
-    private List<LexicalRecognizer> recognizers;
+    private LexicalRecognizer recognizer;
 
     public ProCompiler(List<LexicalRecognizer> recognizers) {
         this.messages = new MessageList();
         this.names = new NameDictionary();
-        this.recognizers = recognizers;
+        this.recognizer = LexicalRecognizer.combine(recognizers);
     }
 
     public ProScanner getScanner(String program, Map<StateTag, Integer> modeSwitches) {
-        return new ProScanner(program, this, this.recognizers, modeSwitches);
+        return getScanner(new Text(program), modeSwitches);
+    }
+
+    public ProScanner getScanner(Text program, Map<StateTag, Integer> modeSwitches) {
+        return new ProScanner(program, this, this.recognizer, modeSwitches);
     }
 
     public void addError(Position coord, String text) {
@@ -6,9 +6,7 @@ import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
 import io.github.sboyanovich.scannergenerator.scanner.token.Token;
 import io.github.sboyanovich.scannergenerator.utility.Utility;
 
-import java.util.List;
 import java.util.Map;
-import java.util.OptionalInt;
 
 /**
  * ProScanner utilizes multiple recognizers (modes) to add additional power to scanning algorithm,
@@ -16,16 +14,16 @@ import java.util.OptionalInt;
  * flex-style regular expressions.
  */
 public class ProScanner {
-    private static final int NEWLINE = Utility.asCodePoint("\n");
-    private static final int CARRET = Utility.asCodePoint("\r");
     private static final int KEEP_CURRENT = -1;
 
     private Text program;
 
     private ProCompiler compiler;
 
-    private Position currPos;
-    private List<LexicalRecognizer> recognizers;
+    // line and column are only resolved for positions of token bounds, when asked for
+    private int currIndex;
+    // recognizers of all modes combined, see LexicalRecognizer.combine()
+    private LexicalRecognizer recognizer;
     private Map<StateTag, Integer> modeSwitches;
 
     public int getCurrentMode() {
@@ -35,15 +33,15 @@ public class ProScanner {
     private int currentMode;
 
     ProScanner(
-            String program,
+            Text program,
             ProCompiler compiler,
-            List<LexicalRecognizer> recognizers,
+            LexicalRecognizer recognizer,
             Map<StateTag, Integer> modeSwitches // only non zero-ones are necessary
     ) {
-        this.program = new Text(program);
+        this.program = program;
         this.compiler = compiler;
-        this.recognizers = recognizers;
-        this.currPos = new Position();
+        this.recognizer = recognizer;
+        this.currIndex = 0;
         this.currentMode = 0;
         //for now without copying
         this.modeSwitches = modeSwitches;
@@ -61,29 +59,21 @@ public class ProScanner {
     }
 
     private void advanceCurrentPosition() {
-        int index = this.currPos.getIndex();
-        int codePoint = this.program.codePointAt(index);
-        int nextCodePoint = this.program.codePointAt(index + 1);
-
-        if (codePoint != Text.EOI) {
-            int line = this.currPos.getLine();
-            // CARRET not followed by NEWLINE will also count as line break
-            if ((codePoint == NEWLINE) || ((codePoint == CARRET) && (nextCodePoint != NEWLINE))) {
-                this.currPos = new Position(line + 1, 1, index + 1);
-            } else {
-                int pos = this.currPos.getPos();
-                this.currPos = new Position(line, pos + 1, index + 1);
-            }
+        if (getCurrentCodePoint() != Text.EOI) {
+            this.currIndex++;
         }
     }
 
+    private Position getCurrentPosition() {
+        return this.program.positionAt(this.currIndex);
+    }
+
     private String getTextFragment(Fragment span) {
         return Utility.getTextFragmentAsString(this.program, span);
     }
 
     private int getCurrentCodePoint() {
-        int cp = this.currPos.getIndex();
-        return this.program.codePointAt(cp);
+        return this.program.codePointAt(this.currIndex);
     }
 
     /**
@@ -92,49 +82,59 @@ public class ProScanner {
     private boolean atPotentialTokenStart() {
         int currCodePoint = getCurrentCodePoint();
         // assuming general use case that all token starts are recognized by default mode
-        LexicalRecognizer recognizer = this.recognizers.get(0);
-        int nextState = recognizer.transition(recognizer.getInitialState(), currCodePoint);
+        int nextState = this.recognizer.transition(this.recognizer.getInitialState(0), currCodePoint);
         return nextState != LexicalRecognizer.DEAD_END_STATE;
     }
 
-    private LexicalRecognizer getCurrentRecognizer() {
-        return this.recognizers.get(this.currentMode);
-    }
-
-    private boolean isFinal(int currState) {
-        return StateTag.isFinal(this.recognizers.get(this.currentMode).getStateTag(currState));
+    // states are offsets of LexicalRecognizer's unchecked API
+    private int nextState(int currState, int codePoint) {
+        if (codePoint == Text.EOI) {
+            return LexicalRecognizer.DEAD_END_STATE;
+        }
+        return this.recognizer.nextOffset(currState, codePoint);
     }
 
     public Token nextToken() {
         if (getCurrentCodePoint() == Text.EOI) {
-            return Domain.END_OF_INPUT.createToken(this.program, new Fragment(currPos, currPos));
+            Fragment end = new Fragment(this.program, this.currIndex, this.currIndex);
+            return Domain.END_OF_INPUT.createToken(this.program, end);
         }
 
-        int currState = getCurrentRecognizer().getInitialState();
+        int currState = this.recognizer.getInitialOffset(this.currentMode);
 
-        Position start = currPos;
+        int start = this.currIndex;
+        // streamed input is only retained from the current token's start onward
+        this.program.release(start);
 
-        // Save last final state encountered
-        OptionalInt lastFinalState = OptionalInt.empty();
-        Position lastInFinal = new Position(); // will be used only if lastFinalState is present
+        // Save accept index of last final state encountered
+        int lastAccept = LexicalRecognizer.NOT_ACCEPTING;
+        int lastInFinal = 0; // will be used only if lastAccept is present
 
         while (true) {
             int currCodePoint = getCurrentCodePoint();
-            int nextState = getCurrentRecognizer().transition(currState, currCodePoint);
+            int nextState = nextState(currState, currCodePoint);
 
-            if (isFinal(currState)) {
-                lastFinalState = OptionalInt.of(currState);
-                lastInFinal = this.currPos;
+            int accept = this.recognizer.getAcceptIndexAtOffset(currState);
+            if (accept != LexicalRecognizer.NOT_ACCEPTING) {
+                lastAccept = accept;
+                lastInFinal = this.currIndex;
             }
 
             if (nextState != LexicalRecognizer.DEAD_END_STATE) {
-                currState = nextState;
                 advanceCurrentPosition();
+                if (nextState == currState) {
+                    int[] exitSymbols = this.recognizer.getExitSymbolsAtOffset(currState);
+                    if (exitSymbols != null) {
+                        // the state is only left on these
+                        this.currIndex = this.program.indexOfAny(this.currIndex, exitSymbols);
+                    }
+                }
+                currState = nextState;
             } else {
                 // it's time to stop
 
-                if (!isFinal(currState) && !lastFinalState.isPresent()) {
-                    this.compiler.addError(this.currPos, "Unexpected symbol encountered.");
+                if (lastAccept == LexicalRecognizer.NOT_ACCEPTING) {
+                    this.compiler.addError(getCurrentPosition(), "Unexpected symbol encountered.");
 
                     // recovery
                     // symbol we've stumbled upon might be the beginning of a new token
@@ -143,18 +143,14 @@ public class ProScanner {
                         advanceCurrentPosition();
                     }
                     this.currentMode = 0; // resetting to default mode after error recovery
-                    Fragment invalidFragment = new Fragment(start, this.currPos);
+                    Fragment invalidFragment = new Fragment(this.program, start, this.currIndex);
                     return Domain.ERROR.createToken(this.program, invalidFragment);
                 } else {
-                    if (lastFinalState.isPresent()) {
-                        this.currPos = lastInFinal;
-                        currState = lastFinalState.getAsInt();
-                    }
-                    // now currState is certainly final
-
-                    lastFinalState = OptionalInt.empty(); // something matched, no reusing this!
+                    this.currIndex = lastInFinal;
+                    // last final state is certainly present
 
-                    StateTag tag = getCurrentRecognizer().getStateTag(currState);
+                    StateTag tag = this.recognizer.getAcceptedTag(lastAccept);
+                    lastAccept = LexicalRecognizer.NOT_ACCEPTING; // something matched, no reusing this!
 
                     int mode = modeSwitch(tag);
 
@@ -166,12 +162,11 @@ public class ProScanner {
                     if (tag instanceof DomainTag) {
                         // we have a Token
                         DomainTag domainTag = (DomainTag) tag;
-                        Fragment scannedFragment = new Fragment(start, this.currPos);
-                        return domainTag.getDomain().createToken(this.program, scannedFragment);
+                        return domainTag.getDomain().createToken(this.program, start, this.currIndex);
                     } else {
                         // we must work further to complete our Token (maybe in new mode)
                         // don't forget to reset current recognizer to initial state
-                        currState = getCurrentRecognizer().getInitialState();
+                        currState = this.recognizer.getInitialOffset(this.currentMode);
                     }
                 }
             }
@@ -0,0 +1,147 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.automata.NFA;
+import io.github.sboyanovich.scannergenerator.automata.NFAStateGraphBuilder;
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.Compiler;
+import io.github.sboyanovich.scannergenerator.scanner.*;
+import io.github.sboyanovich.scannergenerator.scanner.Scanner;
+import io.github.sboyanovich.scannergenerator.scanner.token.Domain;
+import io.github.sboyanovich.scannergenerator.scanner.token.Token;
+import io.github.sboyanovich.scannergenerator.utility.Utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static io.github.sboyanovich.scannergenerator.tests.mockjava.data.states.StateTags.*;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdge;
+import static io.github.sboyanovich.scannergenerator.utility.Utility.addEdgeSubtractive;
+
+/**
+ * Checks that positions of tokens scanned from streamed texts can be read once all input has been scanned
+ * (and released), and that they are the same as for texts held in memory. Keywords are SimpleTokens,
+ * identifiers and integers have attributes.
+ */
+public class StreamedPositionsTest {
+    public static void main(String[] args) throws IOException {
+        LexicalRecognizer recognizer = buildRecognizer();
+
+        Map<String, String> inputs = new LinkedHashMap<>();
+        inputs.put("MJTest2.txt", Utility.getTextFromResourceFile("MJTest2.txt"));
+        inputs.put("line breaks", "if(12);\r\nx /* two\r\nlines */ if\rz\n\n#\tq ;if");
+        inputs.put("only whitespace", " \n ");
+
+        int failures = 0;
+        for (Map.Entry<String, String> input : inputs.entrySet()) {
+            String name = input.getKey();
+            String program = input.getValue();
+            List<String> expected = describeAll(new Compiler(recognizer).getScanner(new Text(program)));
+
+            byte[] bytes = program.getBytes(StandardCharsets.UTF_8);
+            Path file = Files.createTempFile("streamed", ".txt");
+            Files.write(file, bytes);
+            try {
+                Map<String, Text> streamed = new LinkedHashMap<>();
+                streamed.put("reader", Text.fromReader(new StringReader(program)));
+                streamed.put("file", Text.fromFile(file.toString(), StandardCharsets.UTF_8));
+                streamed.put("channel", Text.fromChannel(
+                        Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8
+                ));
+                for (Map.Entry<String, Text> text : streamed.entrySet()) {
+                    boolean same;
+                    try {
+                        same = describeAll(new Compiler(recognizer).getScanner(text.getValue())).equals(expected);
+                    } catch (IllegalStateException e) {
+                        System.out.println(e.getMessage());
+                        same = false;
+                    }
+                    System.out.println(name + " (" + expected.size() + " tokens), " + text.getKey() + ": "
+                            + (same ? "OK" : "MISMATCH"));
+                    if (!same) {
+                        failures++;
+                    }
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+        System.out.println(failures == 0 ? "All the same." : failures + " mismatches!");
+    }
+
+    // tokens are all scanned before any of their positions are read
+    private static List<String> describeAll(Scanner scanner) {
+        List<Token> tokens = new ArrayList<>();
+        Token t;
+        do {
+            t = scanner.nextToken();
+            tokens.add(t);
+        } while (t.getTag() != Domain.END_OF_INPUT);
+
+        List<String> result = new ArrayList<>();
+        for (Token token : tokens) {
+            Fragment coords = token.getCoords();
+            result.add(token + " " + coords.getStarting().getIndex() + " " + coords.getFollowing().getIndex());
+        }
+        return result;
+    }
+
+    private static LexicalRecognizer buildRecognizer() {
+        int alphabetSize = Character.MAX_CODE_POINT + 2;
+
+        NFA whitespaceNFA = NFA.acceptsAllTheseSymbols(alphabetSize, Set.of(" ", "\t", "\n", "\r"))
+                .positiveIteration()
+                .setAllFinalStatesTo(WHITESPACE);
+
+        NFAStateGraphBuilder commentNFAEdges = new NFAStateGraphBuilder(6, alphabetSize);
+        addEdge(commentNFAEdges, 0, 1, Set.of("/"));
+        addEdge(commentNFAEdges, 1, 2, Set.of("*"));
+        addEdge(commentNFAEdges, 2, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 2, 3, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 3, 3, Set.of("*"));
+        addEdge(commentNFAEdges, 3, 4, Set.of("*"));
+        addEdgeSubtractive(commentNFAEdges, 4, 3, Set.of("*", "/"));
+        addEdge(commentNFAEdges, 4, 4, Set.of("*"));
+        addEdge(commentNFAEdges, 4, 5, Set.of("/"));
+        NFA commentNFA = new NFA(6, alphabetSize, 0, Map.of(5, COMMENT), commentNFAEdges.build());
+
+        NFA keywordNFA = NFA.acceptsThisWord(alphabetSize, "if")
+                .setAllFinalStatesTo(KEYWORD_IF);
+        NFA identifierNFA = NFA.acceptsThisRange(alphabetSize, "a", "z")
+                .positiveIteration()
+                .setAllFinalStatesTo(IDENTIFIER);
+        NFA integerLiteralNFA = NFA.acceptsThisRange(alphabetSize, "0", "9")
+                .positiveIteration()
+                .setAllFinalStatesTo(INTEGER_LITERAL);
+        NFA lparenNFA = NFA.singleLetterLanguage(alphabetSize, "(")
+                .setAllFinalStatesTo(LPAREN);
+        NFA rparenNFA = NFA.singleLetterLanguage(alphabetSize, ")")
+                .setAllFinalStatesTo(RPAREN);
+        NFA semicolonNFA = NFA.singleLetterLanguage(alphabetSize, ";")
+                .setAllFinalStatesTo(SEMICOLON);
+
+        List<StateTag> priorityList = List.of(
+                WHITESPACE, COMMENT, IDENTIFIER, KEYWORD_IF, INTEGER_LITERAL, LPAREN, RPAREN, SEMICOLON
+        );
+        Map<StateTag, Integer> priorityMap = new HashMap<>();
+        for (int i = 0; i < priorityList.size(); i++) {
+            priorityMap.put(priorityList.get(i), i);
+        }
+
+        NFA lang = whitespaceNFA
+                .union(commentNFA)
+                .union(keywordNFA)
+                .union(identifierNFA)
+                .union(integerLiteralNFA)
+                .union(lparenNFA)
+                .union(rparenNFA)
+                .union(semicolonNFA);
+
+        return new LexicalRecognizer(lang.removeLambdaSteps().determinize(priorityMap));
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.sboyanovich.scannergenerator.tests;
+
+import io.github.sboyanovich.scannergenerator.automata.StateTag;
+import io.github.sboyanovich.scannergenerator.scanner.LexicalRecognizer;
+import io.github.sboyanovich.scannergenerator.utility.Utility;
+
+/**
+ * Compares the checked transition() and getStateTag() of LexicalRecognizer with the unchecked
+ * nextOffset() and isFinalOffset() scanners use, on a Java-like recognizer (see JavaLikeGrammar).
+ * Both loops restart from the initial state after a dead end, so they walk the same states.
+ * <p>
+ * Run with res/ on the class path. Prints symbols per second for each loop, the best of several rounds.
+ */
+public class TransitionBenchmark {
+    private static final int SYMBOLS = 20_000_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        LexicalRecognizer recognizer = JavaLikeGrammar.build(Character.MAX_CODE_POINT + 2);
+        System.out.println(recognizer.getNumberOfStates() + " states, "
+                + recognizer.getNumberOfColumns() + " columns");
+
+        int[] sample = Utility.getTextFromResourceFile("MJTest2.txt").codePoints().toArray();
+        int[] input = new int[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            input[i] = sample[i % sample.length];
+        }
+
+        report("transition(), getStateTag()", () -> runChecked(recognizer, input));
+        report("nextOffset(), isFinalOffset()", () -> runUnchecked(recognizer, input));
+    }
+
+    // counts of final states are returned, so that loops aren't optimized away
+    private static long runChecked(LexicalRecognizer recognizer, int[] input) {
+        long finals = 0;
+        int state = recognizer.getInitialState();
+        for (int codePoint : input) {
+            int next = recognizer.transition(state, codePoint);
+            if (next == LexicalRecognizer.DEAD_END_STATE) {
+                next = recognizer.transition(recognizer.getInitialState(), codePoint);
+            }
+            if (StateTag.isFinal(recognizer.getStateTag(next))) {
+                finals++;
+            }
+            state = (next == LexicalRecognizer.DEAD_END_STATE) ? recognizer.getInitialState() : next;
+        }
+        return finals;
+    }
+
+    private static long runUnchecked(LexicalRecognizer recognizer, int[] input) {
+        long finals = 0;
+        int offset = recognizer.getInitialOffset();
+        for (int codePoint : input) {
+            int next = recognizer.nextOffset(offset, codePoint);
+            if (next == LexicalRecognizer.DEAD_END_STATE) {
+                next = recognizer.nextOffset(recognizer.getInitialOffset(), codePoint);
+            }
+            if (next != LexicalRecognizer.DEAD_END_STATE && recognizer.isFinalOffset(next)) {
+                finals++;
+            }
+            offset = (next == LexicalRecognizer.DEAD_END_STATE) ? recognizer.getInitialOffset() : next;
+        }
+        return finals;
+    }
+
+    interface Run {
+        long run();
+    }
+
+    // best of several rounds, the first ones warm up
+    private static void report(String name, Run run) {
+        long best = Long.MAX_VALUE;
+        long finals = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            finals = run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(name + ": " + (SYMBOLS * 1000L / best) + "M symbols/s (" + finals + " final states)");
+    }
+}
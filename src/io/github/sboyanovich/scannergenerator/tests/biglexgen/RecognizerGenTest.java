@@ -171,6 +171,15 @@ public class RecognizerGenTest {
                         prefix + recognizersDirName + "/" + modeName + ".reco", priorityMap
                 );
             }
+            // all modes in one table, as restored by the scanner of generated package
+            List<LexicalRecognizer> modeRecognizers = new ArrayList<>();
+            modeRecognizers.add(modes.get("INITIAL"));
+            for (AST.Identifier mode : spec.modes.modeNames) {
+                modeRecognizers.add(modes.get(mode.identifier));
+            }
+            LexicalRecognizer.combine(modeRecognizers).writeToFile(
+                    prefix + recognizersDirName + "/" + scannerClassName + ".reco", priorityMap
+            );
 
             System.out.println();
             Collections.reverse(priorityList);
@@ -0,0 +1,123 @@
+package io.github.sboyanovich.scannergenerator.utility;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static io.github.sboyanovich.scannergenerator.utility.Utility.isInRange;
+
+/**
+ * Compact read-only equivalent of EquivalenceMap for alphabets of code points, meant for lookups at scanning time.
+ * <p>
+ * Classes of the first two planes (the BMP and the one with emoji) are kept in a direct table of chars, so that
+ * a lookup there is one data access, as in a plain array. The rest of the alphabet is split into blocks of 64
+ * symbols, equal blocks are stored once (like in ICU code point tries), so a lookup there takes an index and
+ * a data access. Input rarely leaves the first two planes, so the only branch is well predicted whatever the mix
+ * of scripts. For usual alphabets of all code points this takes about 330 KB instead of over 4 MB for a plain array.
+ */
+public final class CodePointClassMap {
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int DIRECT_LIMIT = 0x20000;
+
+    // class of symbols past the domain in its last block, makes unchecked lookups in tables fail
+    private static final int NO_CLASS = Integer.MIN_VALUE;
+
+    private final int domain;
+    private final int eqClassDomain;
+
+    // symbols of the first planes => their classes
+    private final char[] direct;
+    // block number => offset of its data, for symbols past the direct table
+    private final int[] blockIndex;
+    private final int[] blockData;
+
+    public CodePointClassMap(int domain, int eqClassDomain, int[] map) {
+        // same validation as in EquivalenceMap
+        Objects.requireNonNull(map);
+        if (!(domain > 0)) {
+            throw new IllegalArgumentException("Domain must be non-negative!");
+        }
+        if (!isInRange(eqClassDomain, 1, domain)) {
+            throw new IllegalArgumentException("EqClassDomain must be in range [1, domain]!");
+        }
+        if (map.length != domain) {
+            throw new IllegalArgumentException("Parameter map[] should have domain length!");
+        }
+        for (int eqClass : map) {
+            if (!isInRange(eqClass, 0, eqClassDomain - 1)) {
+                throw new IllegalArgumentException("Mappings should lie in range [0, eqClassDomain-1]!");
+            }
+        }
+
+        this.domain = domain;
+        this.eqClassDomain = eqClassDomain;
+
+        // classes must fit in chars, which they do unless nearly all symbols have classes of their own
+        int directLimit = (eqClassDomain <= Character.MAX_VALUE + 1) ? Math.min(domain, DIRECT_LIMIT) : 0;
+        this.direct = new char[directLimit];
+        for (int i = 0; i < directLimit; i++) {
+            this.direct[i] = (char) map[i];
+        }
+
+        // blocks of the direct table all point to the first one, the last block is padded with NO_CLASS
+        int blocks = (domain + BLOCK_MASK) >> BLOCK_SHIFT;
+        int[] padded = Arrays.copyOf(map, blocks << BLOCK_SHIFT);
+        Arrays.fill(padded, 0, directLimit, 0);
+        Arrays.fill(padded, domain, padded.length, NO_CLASS);
+        this.blockIndex = new int[blocks];
+        Map<IntBuffer, Integer> offsets = new HashMap<>();
+        IntBuffer data = IntBuffer.allocate(padded.length);
+        for (int i = 0; i < blocks; i++) {
+            IntBuffer block = IntBuffer.wrap(padded, i << BLOCK_SHIFT, BLOCK_SIZE).slice();
+            Integer offset = offsets.get(block);
+            if (offset == null) {
+                offset = data.position();
+                offsets.put(block, offset);
+                data.put(block.duplicate());
+            }
+            this.blockIndex[i] = offset;
+        }
+        this.blockData = Arrays.copyOf(data.array(), data.position());
+    }
+
+    public static CodePointClassMap of(EquivalenceMap map) {
+        int domain = map.getDomain();
+        int[] classes = new int[domain];
+        for (int i = 0; i < domain; i++) {
+            classes[i] = map.getEqClass(i);
+        }
+        return new CodePointClassMap(domain, map.getEqClassDomain(), classes);
+    }
+
+    /**
+     * Symbol isn't validated. Negative ones and those past the last block of the domain throw
+     * ArrayIndexOutOfBoundsException, others past the domain give a large negative class.
+     */
+    public int getEqClass(int elem) {
+        char[] direct = this.direct;
+        if (elem < direct.length) {
+            return direct[elem];
+        }
+        return this.blockData[this.blockIndex[elem >> BLOCK_SHIFT] + (elem & BLOCK_MASK)];
+    }
+
+    public int getDomain() {
+        return this.domain;
+    }
+
+    public int getEqClassDomain() {
+        return this.eqClassDomain;
+    }
+
+    public EquivalenceMap toEquivalenceMap() {
+        int[] map = new int[this.domain];
+        for (int i = 0; i < this.domain; i++) {
+            map[i] = getEqClass(i);
+        }
+        return new EquivalenceMap(this.domain, this.eqClassDomain, map);
+    }
+}
@@ -4,6 +4,7 @@ import io.github.sboyanovich.scannergenerator.automata.NFA;
 import io.github.sboyanovich.scannergenerator.automata.NFAStateGraph;
 import io.github.sboyanovich.scannergenerator.automata.NFAStateGraphBuilder;
 import io.github.sboyanovich.scannergenerator.scanner.Fragment;
+import io.github.sboyanovich.scannergenerator.scanner.Lexeme;
 import io.github.sboyanovich.scannergenerator.scanner.Text;
 
 import java.io.*;
@@ -164,11 +165,11 @@ public class Utility {
     }
 
     public static String getTextFragmentAsString(Text text, Fragment span) {
-        return text.subtext(
-                span.getStarting().getIndex(),
-                span.getFollowing().getIndex()
-        )
-                .toString();
+        return getTextFragment(text, span).toString();
+    }
+
+    public static Lexeme getTextFragment(Text text, Fragment span) {
+        return text.lexeme(span.getStartingIndex(), span.getFollowingIndex());
     }
 
     public static int[][] copyTable(int[][] table) {
@@ -350,34 +351,21 @@ public class Utility {
         }
     }
 
-    private static String generateSimpleDomain(String domainName) {
-        return "    " +
-                domainName +
-                " {\n" + "        @Override\n" +
-                "        public Token createToken(Text text, Fragment fragment) {\n" +
-                "            return new BasicToken(fragment, " +
-                domainName + ");\n" + "        }\n" + "    }";
-    }
-
     public static String generateSimpleDomainsEnum(List<String> domainNames, String packageName, String enumName) {
         StringBuilder result = new StringBuilder();
 
         result.append("package ")
                 .append(packageName)
                 .append(";\n\n");
-        result.append("import io.github.sboyanovich.scannergenerator.scanner.Fragment;\n" +
-                "import io.github.sboyanovich.scannergenerator.scanner.Text;\n" +
-                "import io.github.sboyanovich.scannergenerator.scanner.token.BasicToken;\n" +
-                "import io.github.sboyanovich.scannergenerator.scanner.token.Domain;\n" +
-                "import io.github.sboyanovich.scannergenerator.scanner.token.Token;\n\n");
-        result.append("public enum ").append(enumName).append(" implements Domain {\n");
+        result.append("import io.github.sboyanovich.scannergenerator.scanner.token.SimpleDomain;\n\n");
+        // tokens of these are SimpleTokens, see SimpleDomain
+        result.append("public enum ").append(enumName).append(" implements SimpleDomain {\n");
 
         if (domainNames.size() > 0) {
-            result.append(generateSimpleDomain(domainNames.get(0)));
+            result.append("    ").append(domainNames.get(0));
         }
         for (int i = 1; i < domainNames.size(); i++) {
-            result.append(",\n")
-                    .append(generateSimpleDomain(domainNames.get(i)));
+            result.append(",\n    ").append(domainNames.get(i));
         }
 
         result.append("\n}");
@@ -394,8 +382,7 @@ public class Utility {
                 "        @Override\n" +
                 "        public TokenWithAttribute<" + attributeType +
                 "> createToken(Text text, Fragment fragment) {\n" +
-                "            return new TokenWithAttribute<>(fragment, " +
-                domainName + ", attribute(text, fragment));\n" +
+                "            return new TokenWithAttribute<>(text, fragment, " + domainName + ");\n" +
                 "        }\n" +
                 "    }";
     }